@@ -0,0 +1,159 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A small self-contained benchmark harness in the spirit of JMH: each
+ * benchmark is run for a number of timed warmup iterations, then for a number
+ * of timed measurement iterations, and reported as operations per second
+ * (mean and error over the iterations) together with the bytes allocated per
+ * operation and the collections that happened while measuring.
+ *
+ * Allocation is read from the per thread allocation counter of the HotSpot
+ * ThreadMXBean, the same counter JMH's GC profiler uses for
+ * gc.alloc.rate.norm. Results of each operation are folded into a sink so the
+ * JIT can't remove the work.
+ *
+ * The iteration counts and times can be set with the bench.warmup,
+ * bench.iterations and bench.time (milliseconds) system properties.
+ */
+class Benchmark {
+
+	/** One benchmarked operation. */
+	interface Op {
+		Object run() throws Exception;
+	}
+
+	static final int WARMUP = Integer.getInteger("bench.warmup", 5);
+	static final int ITERATIONS = Integer.getInteger("bench.iterations", 5);
+	static final long ITERATION_MILLIS = Long.getLong("bench.time", 500);
+
+	private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	private static volatile int sink;
+
+	final String name;
+	final double opsPerSec, error, bytesPerOp;
+	final long gcCount, gcMillis;
+
+	private Benchmark(String name, double opsPerSec, double error, double bytesPerOp, long gcCount, long gcMillis) {
+		this.name = name;
+		this.opsPerSec = opsPerSec;
+		this.error = error;
+		this.bytesPerOp = bytesPerOp;
+		this.gcCount = gcCount;
+		this.gcMillis = gcMillis;
+	}
+
+	/** Warms up and measures the operation on the calling thread. */
+	static Benchmark measure(String name, Op op) throws Exception {
+		for (int i = 0; i < WARMUP; i++)
+			iteration(op);
+
+		double[] rates = new double[ITERATIONS];
+		long ops = 0, bytes = 0;
+		long gcCount = -gcCount(), gcMillis = -gcMillis();
+		long tid = Thread.currentThread().getId();
+		for (int i = 0; i < ITERATIONS; i++) {
+			long allocated = threads.getThreadAllocatedBytes(tid);
+			long start = System.nanoTime();
+			long n = iteration(op);
+			long elapsed = System.nanoTime() - start;
+			bytes += threads.getThreadAllocatedBytes(tid) - allocated;
+			ops += n;
+			rates[i] = n * 1e9 / elapsed;
+		}
+		gcCount += gcCount();
+		gcMillis += gcMillis();
+
+		double mean = 0;
+		for (double r : rates)
+			mean += r;
+		mean /= rates.length;
+		double var = 0;
+		for (double r : rates)
+			var += (r - mean) * (r - mean);
+		double error = rates.length > 1 ? Math.sqrt(var / (rates.length - 1)) : 0;
+		return new Benchmark(name, mean, error, (double) bytes / ops, gcCount, gcMillis);
+	}
+
+	/** Runs the operation repeatedly for one iteration time, returning the count. */
+	private static long iteration(Op op) throws Exception {
+		long deadline = System.nanoTime() + ITERATION_MILLIS * 1000000L;
+		long n = 0;
+		int h = 0;
+		do {
+			// check the clock every 16 operations so it doesn't dominate tiny ones
+			for (int i = 0; i < 16; i++) {
+				Object result = op.run();
+				h += result == null ? 0 : System.identityHashCode(result);
+			}
+			n += 16;
+		} while (System.nanoTime() < deadline);
+		sink += h;
+		return n;
+	}
+
+	private static long gcCount() {
+		long n = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			n += Math.max(0, gc.getCollectionCount());
+		return n;
+	}
+
+	private static long gcMillis() {
+		long n = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			n += Math.max(0, gc.getCollectionTime());
+		return n;
+	}
+
+	static String header() {
+		return String.format("%-44s %14s %10s %14s %6s %8s", "Benchmark", "ops/s", "error", "B/op", "gc", "gc ms");
+	}
+
+	public String toString() {
+		return String.format("%-44s %14.1f %10.1f %14.1f %6d %8d", name, opsPerSec, error, bytesPerOp, gcCount,
+				gcMillis);
+	}
+
+	/**
+	 * Runs every suite, or only the benchmarks whose names contain one of the
+	 * arguments. Run from the project directory, e.g.
+	 * <code>java -cp bin Benchmark parse.s3 exec</code>
+	 */
+	public static void main(String[] args) throws Exception {
+		RoboGame.debugDisplay = false;
+		List<Suite> suites = new ArrayList<Suite>();
+		suites.add(new ParserBenchmarks());
+		suites.add(new InterpreterBenchmarks());
+
+		System.out.printf("%d warmup and %d measurement iterations of %d ms%n", WARMUP, ITERATIONS,
+				ITERATION_MILLIS);
+		System.out.println(header());
+		for (Suite suite : suites) {
+			for (Map.Entry<String, Op> b : suite.benchmarks().entrySet()) {
+				if (selected(b.getKey(), args))
+					System.out.println(measure(b.getKey(), b.getValue()));
+			}
+		}
+	}
+
+	private static boolean selected(String name, String[] filters) {
+		if (filters.length == 0)
+			return true;
+		for (String f : filters)
+			if (name.contains(f))
+				return true;
+		return false;
+	}
+
+	/** A group of benchmarks sharing their setup. */
+	interface Suite {
+		/** Sets up the benchmarks, returning them by name in running order. */
+		Map<String, Op> benchmarks() throws Exception;
+	}
+}
@@ -0,0 +1,182 @@
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Interpreter benchmarks: evaluating the condition and nested arithmetic of
+ * s3_full.prog (s4_full.prog in prefix syntax) against a robot, running one of
+ * its assignments, and executing each valid program in data/ for a fixed
+ * number of robot actions in noWait mode (so no time is spent waiting for the
+ * world to update), interpreted, compiled by ProgramCompiler and run by the
+ * RegisterVM. The interpreted runs use tiered execution, so their hot loops
+ * end up compiled; run with -Drobot.tiered=false to measure the plain
+ * interpreter.
+ */
+class InterpreterBenchmarks implements Benchmark.Suite {
+
+	/** The number of actions a program may take before it is stopped */
+	static final int ACTIONS = 500;
+	static final int SENSOR_READS = 20 * ACTIONS;
+
+	@Override
+	public Map<String, Benchmark.Op> benchmarks() throws Exception {
+		Map<String, Benchmark.Op> ops = new LinkedHashMap<String, Benchmark.Op>();
+
+		ProgramNode s3 = Parser.parse(ParserBenchmarks.read(new File("data/s3_full.prog")));
+		WhileNode loop = (WhileNode) s3.getStatements().get(0);
+		final ConditionalNode condition = loop.condition;
+		final ExpressionNode arithmetic = ((GreaterThanNode) ((OrNode) condition).left).right;
+		final StatementNode assignment = loop.block.getStatements().get(3); // $spurious = mul($spurious, $empty)
+		final Robot robot = new Robot(new BenchWorld(), 0, 0, "red", true); // no limit on reads
+		robot.updatePending();
+		robot.context = new ExecutionContext(s3);
+
+		ops.put("eval.s3.arithmetic", new Benchmark.Op() {
+			public Object run() {
+				return arithmetic.evaluate(robot);
+			}
+		});
+		ops.put("eval.s3.condition", new Benchmark.Op() {
+			public Object run() {
+				return condition.evaluate(robot);
+			}
+		});
+		ops.put("exec.s3.assignment", new Benchmark.Op() {
+			public Object run() {
+				assignment.execute(robot);
+				return null;
+			}
+		});
+
+		File[] files = new File("data").listFiles();
+		Arrays.sort(files);
+		for (File f : files) {
+			if (!f.getName().endsWith(".prog"))
+				continue;
+			Parser.ParseResult parsed = Parser.parseRecovering(ParserBenchmarks.read(f));
+			if (!parsed.succeeded())
+				continue;
+			final ProgramNode program = parsed.program;
+			ops.put("exec." + f.getName().replace(".prog", ""), new Benchmark.Op() {
+				public Object run() {
+					return BenchWorld.execute(program);
+				}
+			});
+			final RobotProgramNode compiled = ProgramCompiler.load(program);
+			ops.put("exec.compiled." + f.getName().replace(".prog", ""), new Benchmark.Op() {
+				public Object run() {
+					return BenchWorld.execute(compiled);
+				}
+			});
+			final RobotProgramNode vm = RegisterVM.compile(program);
+			ops.put("exec.vm." + f.getName().replace(".prog", ""), new Benchmark.Op() {
+				public Object run() {
+					return BenchWorld.execute(vm);
+				}
+			});
+		}
+		return ops;
+	}
+
+	/**
+	 * A world with a fixed layout of fuel whose robots don't print their state
+	 * and are stopped after ACTIONS actions.
+	 */
+	static class BenchWorld extends World {
+
+		BenchWorld() {
+			robots = new Robot[] { null, new BenchRobot(this, 0, 0, "red"),
+					new BenchRobot(this, SIZE - 1, SIZE - 1, "blue") };
+			availableFuel.add(3, 4);
+			availableFuel.add(8, 2);
+			availableFuel.add(6, 9);
+			for (int i = 1; i <= 2; i++)
+				robots[i].updatePending();
+		}
+
+		/** Runs the program on the red robot of a fresh world. */
+		static Robot execute(RobotProgramNode program) {
+			Robot robot = new BenchWorld().getRobot(1);
+			robot.setProgram(program);
+			try {
+				robot.run();
+			} catch (RobotInterruptedException e) {
+				// ran out of actions
+			}
+			return robot;
+		}
+	}
+
+	/**
+	 * A robot that stops after ACTIONS actions, or after SENSOR_READS sensor
+	 * reads for programs that end up spinning without acting (nothing adds
+	 * fuel in a BenchWorld).
+	 */
+	static class BenchRobot extends Robot {
+		private int actions = 0, reads = 0;
+
+		BenchRobot(World world, int x, int y, String colour) {
+			super(world, x, y, colour, true);
+		}
+
+		@Override
+		public void readState() {
+			if (++actions == ACTIONS)
+				cancel();
+		}
+
+		private void read() {
+			if (++reads > SENSOR_READS)
+				throw new RobotInterruptedException();
+		}
+
+		@Override
+		public int getDistanceToWall() {
+			read();
+			return super.getDistanceToWall();
+		}
+
+		@Override
+		public int getOpponentLR() {
+			read();
+			return super.getOpponentLR();
+		}
+
+		@Override
+		public int getOpponentFB() {
+			read();
+			return super.getOpponentFB();
+		}
+
+		@Override
+		public int numBarrels() {
+			read();
+			return super.numBarrels();
+		}
+
+		@Override
+		public int getBarrelLR(int n) {
+			read();
+			return super.getBarrelLR(n);
+		}
+
+		@Override
+		public int getBarrelFB(int n) {
+			read();
+			return super.getBarrelFB(n);
+		}
+
+		@Override
+		public int getFuel() {
+			read();
+			return super.getFuel();
+		}
+
+		@Override
+		void checkCancelled() {
+			read(); // a cached sensor reading
+			super.checkCancelled();
+		}
+	}
+}
@@ -0,0 +1,62 @@
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parsing benchmarks: every program in data/ (the bad ones with the recovering
+ * parser, so all their errors are found), and s3_full.prog repeated to make
+ * programs 10, 100 and 1000 times its size. Sources are parsed from memory,
+ * bypassing the parse cache.
+ */
+class ParserBenchmarks implements Benchmark.Suite {
+
+	static final int[] SCALES = { 10, 100, 1000 };
+
+	@Override
+	public Map<String, Benchmark.Op> benchmarks() throws Exception {
+		Map<String, Benchmark.Op> ops = new LinkedHashMap<String, Benchmark.Op>();
+
+		File[] files = new File("data").listFiles();
+		Arrays.sort(files);
+		for (File f : files) {
+			if (!f.getName().endsWith(".prog"))
+				continue;
+			final String source = read(f);
+			String name = "parse." + f.getName().replace(".prog", "");
+			if (Parser.parseRecovering(source).succeeded()) {
+				ops.put(name, new Benchmark.Op() {
+					public Object run() {
+						return Parser.parse(source);
+					}
+				});
+			} else {
+				ops.put(name, new Benchmark.Op() {
+					public Object run() {
+						return Parser.parseRecovering(source);
+					}
+				});
+			}
+		}
+
+		String base = read(new File("data/s3_full.prog"));
+		for (int scale : SCALES) {
+			StringBuilder sb = new StringBuilder(base.length() * scale);
+			for (int i = 0; i < scale; i++)
+				sb.append(base).append('\n');
+			final String source = sb.toString();
+			ops.put("parse.scaled.x" + scale, new Benchmark.Op() {
+				public Object run() {
+					return Parser.parse(source);
+				}
+			});
+		}
+		return ops;
+	}
+
+	static String read(File f) throws java.io.IOException {
+		return new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1 @@
+interface ActionNode extends StatementNode{}
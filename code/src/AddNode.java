@@ -0,0 +1,17 @@
+class AddNode implements OPNode{
+
+	@Override
+	public String getOP() {
+		return "add";
+	}
+
+	@Override
+	public int evaluate(Robot robot) {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
+	public String toString(){
+		return "add";
+	}
+}
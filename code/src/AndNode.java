@@ -0,0 +1,23 @@
+class AndNode implements ConditionalNode{
+
+	ConditionalNode left;
+	ConditionalNode right;
+
+	public AndNode(ConditionalNode left, ConditionalNode right){
+		this.left = left;
+		this.right = right;
+	}
+
+	@Override
+	public boolean evaluate(Robot robot) {
+
+		if(left.evaluate(robot) && right.evaluate(robot))
+			return true;
+		else
+			return false;
+	}
+
+	public String toString(){
+		return "and( "+left+", "+ right + ")";
+	}
+}
@@ -0,0 +1,34 @@
+class AssignmentNode implements StatementNode{
+
+	VariableNode var;
+	ExpressionNode exp;
+	private volatile boolean specialized;		//See prepare
+
+	public AssignmentNode(VariableNode var, ExpressionNode exp){
+
+		this.var = var;
+		this.exp = exp;
+
+	}
+
+	@Override
+	public void execute(Robot robot) {
+		if(!specialized)
+			prepare();
+		robot.context.frame[var.slot] = exp.evaluate(robot);
+	}
+
+	/** Specialises the expression once, before it first runs, see NodeSpecializer and LoopTier */
+	synchronized void prepare(){
+		if(!specialized){
+			if(NodeSpecializer.ENABLED)
+				exp = NodeSpecializer.expression(exp);
+			specialized = true;
+		}
+	}
+
+	public String toString(){
+		return var + " = " + exp;
+	}
+
+}
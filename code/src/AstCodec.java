@@ -0,0 +1,355 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Compact binary serialization of a parsed program. Each node is written as a
+ * one byte tag followed by its children in prefix order, numbers as ints and
+ * variable names as UTF strings. Optional children (e.g. the argument of move)
+ * are written as the NONE tag when absent.
+ *
+ * Decoding checks every tag, so a truncated or corrupted snapshot is reported
+ * as an IOException rather than producing a broken tree.
+ */
+class AstCodec {
+
+	private static final int NONE = 0, PROGRAM = 1, BLOCK = 2, MOVE = 3, TURNL = 4, TURNR = 5, TURNAROUND = 6,
+			SHIELDON = 7, SHIELDOFF = 8, TAKEFUEL = 9, WAIT = 10, LOOP = 11, IF = 12, WHILE = 13, ASSIGN = 14,
+			AND = 15, OR = 16, NOT = 17, GT = 18, LT = 19, EQ = 20, FUELLEFT = 21, OPPLR = 22, OPPFB = 23,
+			NUMBARRELS = 24, BARRELLR = 25, BARRELFB = 26, WALLDIST = 27, NUMBER = 28, ADD = 29, SUB = 30, MUL = 31,
+			DIV = 32, VARIABLE = 33;
+
+	/** Serializes the program. */
+	static byte[] encode(ProgramNode program) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(PROGRAM);
+			writeStatements(program.getStatements(), out);
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // can't happen, writing to memory
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Rebuilds a program from bytes produced by encode.
+	 *
+	 * @throws IOException
+	 *             if the bytes are not a complete, well formed program
+	 */
+	static ProgramNode decode(byte[] data) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		try {
+			expect(PROGRAM, in.readUnsignedByte());
+			ProgramNode program = new ProgramNode();
+			VariableTable variables = new VariableTable();
+			readStatements(program.getStatements(), in, variables);
+			if (in.available() != 0)
+				throw new IOException("Trailing bytes after program");
+			program.setVariables(variables.names());
+			return program;
+		} catch (EOFException e) {
+			throw new IOException("Truncated program", e);
+		}
+	}
+
+	// Writing
+
+	private static void writeStatements(List<StatementNode> statements, DataOutputStream out)
+			throws IOException {
+		out.writeInt(statements.size());
+		for (StatementNode s : statements)
+			writeStatement(s, out);
+	}
+
+	private static void writeBlock(BlockNode block, DataOutputStream out) throws IOException {
+		out.writeByte(BLOCK);
+		writeStatements(block.getStatements(), out);
+	}
+
+	private static void writeStatement(StatementNode s, DataOutputStream out) throws IOException {
+		if (s instanceof MoveNode) {
+			out.writeByte(MOVE);
+			writeOptional(((MoveNode) s).exp, out);
+		} else if (s instanceof WaitNode) {
+			out.writeByte(WAIT);
+			writeOptional(((WaitNode) s).exp, out);
+		} else if (s instanceof TurnLNode) {
+			out.writeByte(TURNL);
+		} else if (s instanceof TurnRNode) {
+			out.writeByte(TURNR);
+		} else if (s instanceof TurnAroundNode) {
+			out.writeByte(TURNAROUND);
+		} else if (s instanceof ShieldOnNode) {
+			out.writeByte(SHIELDON);
+		} else if (s instanceof ShielfOffNode) {
+			out.writeByte(SHIELDOFF);
+		} else if (s instanceof TakeFuelNode) {
+			out.writeByte(TAKEFUEL);
+		} else if (s instanceof LoopNode) {
+			out.writeByte(LOOP);
+			writeBlock(((LoopNode) s).block, out);
+		} else if (s instanceof WhileNode) {
+			WhileNode w = (WhileNode) s;
+			out.writeByte(WHILE);
+			writeCondition(w.condition, out);
+			writeBlock(w.block, out);
+		} else if (s instanceof IFNode) {
+			IFNode i = (IFNode) s;
+			out.writeByte(IF);
+			writeCondition(i.condition, out);
+			writeBlock(i.mainBlock, out);
+			out.writeInt(i.elifs.length);
+			for (IFNode.Elif e : i.elifs) {
+				writeCondition(e.condition, out);
+				writeBlock(e.block, out);
+			}
+			if (i.elseBlock != null)
+				writeBlock(i.elseBlock, out);
+			else
+				out.writeByte(NONE);
+		} else if (s instanceof AssignmentNode) {
+			AssignmentNode a = (AssignmentNode) s;
+			out.writeByte(ASSIGN);
+			writeExpression(a.var, out);
+			writeExpression(a.exp, out);
+		} else if (s instanceof BlockNode) {
+			writeBlock((BlockNode) s, out);
+		} else {
+			throw new IllegalArgumentException("Can't encode statement " + s.getClass().getName());
+		}
+	}
+
+	private static void writeCondition(ConditionalNode c, DataOutputStream out) throws IOException {
+		if (c instanceof AndNode) {
+			out.writeByte(AND);
+			writeCondition(((AndNode) c).left, out);
+			writeCondition(((AndNode) c).right, out);
+		} else if (c instanceof OrNode) {
+			out.writeByte(OR);
+			writeCondition(((OrNode) c).left, out);
+			writeCondition(((OrNode) c).right, out);
+		} else if (c instanceof NotNode) {
+			out.writeByte(NOT);
+			writeCondition(((NotNode) c).cond, out);
+		} else if (c instanceof GreaterThanNode) {
+			out.writeByte(GT);
+			writeExpression(((GreaterThanNode) c).left, out);
+			writeExpression(((GreaterThanNode) c).right, out);
+		} else if (c instanceof LessThanNode) {
+			out.writeByte(LT);
+			writeExpression(((LessThanNode) c).left, out);
+			writeExpression(((LessThanNode) c).right, out);
+		} else if (c instanceof EqualsNode) {
+			out.writeByte(EQ);
+			writeExpression(((EqualsNode) c).left, out);
+			writeExpression(((EqualsNode) c).right, out);
+		} else {
+			throw new IllegalArgumentException("Can't encode condition " + c.getClass().getName());
+		}
+	}
+
+	private static void writeOptional(ExpressionNode e, DataOutputStream out) throws IOException {
+		if (e == null)
+			out.writeByte(NONE);
+		else
+			writeExpression(e, out);
+	}
+
+	private static void writeExpression(ExpressionNode e, DataOutputStream out) throws IOException {
+		if (e instanceof NumberNode) {
+			out.writeByte(NUMBER);
+			out.writeInt(((NumberNode) e).num);
+		} else if (e instanceof VariableNode) {
+			out.writeByte(VARIABLE);
+			out.writeUTF(((VariableNode) e).value);
+		} else if (e instanceof OPNodeExpr) {
+			OPNodeExpr op = (OPNodeExpr) e;
+			out.writeByte(opTag(op.op));
+			writeExpression(op.left, out);
+			writeExpression(op.right, out);
+		} else if (e instanceof FuelLeftNode) {
+			out.writeByte(FUELLEFT);
+		} else if (e instanceof OppLRNode) {
+			out.writeByte(OPPLR);
+		} else if (e instanceof OppFBNode) {
+			out.writeByte(OPPFB);
+		} else if (e instanceof NumBarrelsNode) {
+			out.writeByte(NUMBARRELS);
+		} else if (e instanceof WallDistNode) {
+			out.writeByte(WALLDIST);
+		} else if (e instanceof BarrelLRNode) {
+			out.writeByte(BARRELLR);
+			writeOptional(((BarrelLRNode) e).exp, out);
+		} else if (e instanceof BarrelFBNode) {
+			out.writeByte(BARRELFB);
+			writeOptional(((BarrelFBNode) e).exp, out);
+		} else {
+			throw new IllegalArgumentException("Can't encode expression " + e.getClass().getName());
+		}
+	}
+
+	private static int opTag(OPNode op) {
+		if (op instanceof AddNode)
+			return ADD;
+		if (op instanceof SubNode)
+			return SUB;
+		if (op instanceof MultNode)
+			return MUL;
+		if (op instanceof DivNode)
+			return DIV;
+		throw new IllegalArgumentException("Can't encode operator " + op);
+	}
+
+	// Reading
+
+	private static void readStatements(List<StatementNode> statements, DataInputStream in, VariableTable vars)
+			throws IOException {
+		int n = in.readInt();
+		if (n < 0)
+			throw new IOException("Negative statement count");
+		for (int i = 0; i < n; i++)
+			statements.add(readStatement(in.readUnsignedByte(), in, vars));
+	}
+
+	private static BlockNode readBlock(DataInputStream in, VariableTable vars) throws IOException {
+		expect(BLOCK, in.readUnsignedByte());
+		return readBlockBody(in, vars);
+	}
+
+	private static BlockNode readBlockBody(DataInputStream in, VariableTable vars) throws IOException {
+		BlockNode block = new BlockNode();
+		readStatements(block.getStatements(), in, vars);
+		return block;
+	}
+
+	private static StatementNode readStatement(int tag, DataInputStream in, VariableTable vars) throws IOException {
+		switch (tag) {
+		case MOVE:
+			return new MoveNode(readOptional(in, vars));
+		case WAIT:
+			return new WaitNode(readOptional(in, vars));
+		case TURNL:
+			return new TurnLNode();
+		case TURNR:
+			return new TurnRNode();
+		case TURNAROUND:
+			return new TurnAroundNode();
+		case SHIELDON:
+			return new ShieldOnNode();
+		case SHIELDOFF:
+			return new ShielfOffNode();
+		case TAKEFUEL:
+			return new TakeFuelNode();
+		case LOOP:
+			return new LoopNode(readBlock(in, vars));
+		case WHILE: {
+			ConditionalNode c = readCondition(in, vars);
+			return new WhileNode(c, readBlock(in, vars));
+		}
+		case IF: {
+			ConditionalNode c = readCondition(in, vars);
+			IFNode node = new IFNode(c, readBlock(in, vars));
+			int elifs = in.readInt();
+			for (int i = 0; i < elifs; i++) {
+				ConditionalNode ec = readCondition(in, vars);
+				node.addElif(ec, readBlock(in, vars));
+			}
+			int elseTag = in.readUnsignedByte();
+			if (elseTag != NONE) {
+				expect(BLOCK, elseTag);
+				node.setElseBlock(readBlockBody(in, vars));
+			}
+			return node;
+		}
+		case ASSIGN: {
+			expect(VARIABLE, in.readUnsignedByte());
+			VariableNode var = vars.variable(in.readUTF());
+			return new AssignmentNode(var, readExpression(in, vars));
+		}
+		case BLOCK:
+			return readBlockBody(in, vars);
+		}
+		throw new IOException("Unknown statement tag " + tag);
+	}
+
+	private static ConditionalNode readCondition(DataInputStream in, VariableTable vars) throws IOException {
+		int tag = in.readUnsignedByte();
+		switch (tag) {
+		case AND: {
+			ConditionalNode l = readCondition(in, vars);
+			return new AndNode(l, readCondition(in, vars));
+		}
+		case OR: {
+			ConditionalNode l = readCondition(in, vars);
+			return new OrNode(l, readCondition(in, vars));
+		}
+		case NOT:
+			return new NotNode(readCondition(in, vars));
+		case GT: {
+			ExpressionNode l = readExpression(in, vars);
+			return new GreaterThanNode(l, readExpression(in, vars));
+		}
+		case LT: {
+			ExpressionNode l = readExpression(in, vars);
+			return new LessThanNode(l, readExpression(in, vars));
+		}
+		case EQ: {
+			ExpressionNode l = readExpression(in, vars);
+			return new EqualsNode(l, readExpression(in, vars));
+		}
+		}
+		throw new IOException("Unknown condition tag " + tag);
+	}
+
+	private static ExpressionNode readOptional(DataInputStream in, VariableTable vars) throws IOException {
+		int tag = in.readUnsignedByte();
+		return tag == NONE ? null : readExpression(tag, in, vars);
+	}
+
+	private static ExpressionNode readExpression(DataInputStream in, VariableTable vars) throws IOException {
+		return readExpression(in.readUnsignedByte(), in, vars);
+	}
+
+	private static ExpressionNode readExpression(int tag, DataInputStream in, VariableTable vars) throws IOException {
+		switch (tag) {
+		case NUMBER:
+			return new NumberNode(in.readInt());
+		case VARIABLE:
+			return vars.variable(in.readUTF());
+		case ADD:
+		case SUB:
+		case MUL:
+		case DIV: {
+			OPNode op = tag == ADD ? new AddNode() : tag == SUB ? new SubNode() : tag == MUL ? new MultNode()
+					: new DivNode();
+			ExpressionNode l = readExpression(in, vars);
+			return new OPNodeExpr(op, l, readExpression(in, vars));
+		}
+		case FUELLEFT:
+			return new FuelLeftNode();
+		case OPPLR:
+			return new OppLRNode();
+		case OPPFB:
+			return new OppFBNode();
+		case NUMBARRELS:
+			return new NumBarrelsNode();
+		case WALLDIST:
+			return new WallDistNode();
+		case BARRELLR:
+			return new BarrelLRNode(readOptional(in, vars));
+		case BARRELFB:
+			return new BarrelFBNode(readOptional(in, vars));
+		}
+		throw new IOException("Unknown expression tag " + tag);
+	}
+
+	private static void expect(int expected, int tag) throws IOException {
+		if (tag != expected)
+			throw new IOException("Expected tag " + expected + " but found " + tag);
+	}
+}
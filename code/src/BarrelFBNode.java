@@ -0,0 +1,35 @@
+class BarrelFBNode implements SensorNode{
+
+	ExpressionNode exp;
+
+	public BarrelFBNode(){}
+	public BarrelFBNode(ExpressionNode exp){
+		this.exp = exp;
+	}
+
+	@Override
+	public int evaluate(Robot robot) {
+
+		if(exp!=null){
+			
+			int step = exp.evaluate(robot);
+			
+			SensorCache sensors = robot.context.sensors;
+			if(sensors.barrelLR(robot, 0) == 0 && sensors.barrelFB(robot, 0) == 0)
+				return sensors.barrelFB(robot, 0);
+			else
+				return sensors.barrelFB(robot, step);
+			
+		}
+		else
+			return robot.context.sensors.barrelFB(robot, 0);
+	}
+
+	public String toString(){
+
+		if(exp!=null)
+			return "BarrelFB("+this.exp+")";
+		else
+			return "BarrelFB";
+	}
+}
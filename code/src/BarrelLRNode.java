@@ -0,0 +1,37 @@
+class BarrelLRNode implements SensorNode{
+
+	ExpressionNode exp;
+
+	public BarrelLRNode(){}
+	public BarrelLRNode(ExpressionNode exp){
+		this.exp = exp;
+	}
+
+	@Override
+	public int evaluate(Robot robot) {
+
+		if(exp!=null){
+		
+			int step = exp.evaluate(robot);
+
+			SensorCache sensors = robot.context.sensors;
+			if(sensors.barrelLR(robot, 0) == 0 && sensors.barrelFB(robot, 0) == 0)
+				return sensors.barrelLR(robot, 0);
+			else
+				return sensors.barrelLR(robot, step);
+			
+		}
+		else
+			return robot.context.sensors.barrelLR(robot, 0);
+
+	}
+
+	public String toString(){
+
+		if(exp!=null)
+			return "BarrelLR("+this.exp+")";
+		else
+			return "BarrelLR";
+
+	}
+}
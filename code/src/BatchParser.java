@@ -0,0 +1,183 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses a whole directory (or {@link ProgramArchive}) of robot programs in
+ * parallel, used to validate a batch of submissions in one go. The files are
+ * split recursively across a ForkJoinPool, and every file gets its own Parser,
+ * so the parses share no state.
+ */
+class BatchParser {
+
+	/** Below this many files a task parses them itself rather than splitting */
+	private static final int SPLIT_THRESHOLD = 4;
+
+	/**
+	 * The outcome of parsing one file: the program (possibly partial) and every
+	 * syntax error in it, or the reason the file could not be read.
+	 */
+	static class Result {
+		final File file;
+		final ProgramNode program;
+		final List<Diagnostic> diagnostics;
+		final String readError;
+		final long nanos;
+
+		Result(File file, ProgramNode program, List<Diagnostic> diagnostics, String readError, long nanos) {
+			this.file = file;
+			this.program = program;
+			this.diagnostics = diagnostics;
+			this.readError = readError;
+			this.nanos = nanos;
+		}
+
+		boolean succeeded() {
+			return readError == null && diagnostics.isEmpty();
+		}
+	}
+
+	/**
+	 * Parses every .prog file under dir, or every program in the archive if
+	 * given a {@link ProgramArchive}, using all cores and prints a report.
+	 */
+	static void run(File dirOrArchive) {
+		List<Result> results;
+		long start = System.nanoTime();
+		if (dirOrArchive.isDirectory()) {
+			List<File> files = findPrograms(dirOrArchive);
+			System.out.println("Parsing " + files.size() + " programs in '" + dirOrArchive + "' on "
+					+ ForkJoinPool.commonPool().getParallelism() + " threads");
+			results = parseAll(files, ForkJoinPool.commonPool());
+		} else {
+			ProgramArchive archive;
+			try {
+				archive = ProgramArchive.open(dirOrArchive);
+			} catch (IOException e) {
+				System.out.println(e.getMessage());
+				return;
+			}
+			System.out.println("Parsing " + archive.size() + " programs in '" + dirOrArchive + "' on "
+					+ ForkJoinPool.commonPool().getParallelism() + " threads");
+			results = parseAll(archive, ForkJoinPool.commonPool());
+		}
+		long wall = System.nanoTime() - start;
+
+		int failed = 0;
+		long cpu = 0;
+		for (Result r : results) {
+			cpu += r.nanos;
+			if (r.succeeded()) {
+				System.out.printf("OK    %8.3f ms  %s%n", r.nanos / 1e6, r.file);
+			} else {
+				failed++;
+				System.out.printf("FAIL  %8.3f ms  %s%n", r.nanos / 1e6, r.file);
+				if (r.readError != null)
+					System.out.println("      " + r.readError);
+				for (Diagnostic d : r.diagnostics)
+					System.out.println("      " + d.toString().replace("\n", "\n      "));
+			}
+		}
+		System.out.println("=================");
+		System.out.printf("%d parsed, %d failed, %.3f ms total parse time, %.3f ms wall time%n",
+				results.size() - failed, failed, cpu / 1e6, wall / 1e6);
+	}
+
+	/**
+	 * Parses all the files in parallel on the given pool. The results are in the
+	 * same order as the files.
+	 */
+	static List<Result> parseAll(List<File> files, ForkJoinPool pool) {
+		Result[] results = new Result[files.size()];
+		pool.invoke(new ParseTask(files, null, results, 0, files.size()));
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Parses every program in the archive in parallel, directly from the mapped
+	 * file. The results are in archive order.
+	 */
+	static List<Result> parseAll(ProgramArchive archive, ForkJoinPool pool) {
+		Result[] results = new Result[archive.size()];
+		pool.invoke(new ParseTask(null, archive, results, 0, archive.size()));
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Parses a single file, never throws. Parsing recovers from errors, so every
+	 * syntax error in the file is reported.
+	 */
+	static Result parseOne(File file) {
+		long start = System.nanoTime();
+		try {
+			Parser.ParseResult parsed = Parser.parseRecovering(SourceReader.read(file));
+			return new Result(file, parsed.program, parsed.diagnostics, null, System.nanoTime() - start);
+		} catch (IOException e) {
+			return new Result(file, null, Collections.<Diagnostic> emptyList(), "Could not read file: " + e,
+					System.nanoTime() - start);
+		}
+	}
+
+	/** Parses the ith program of the archive, never throws. */
+	static Result parseOne(ProgramArchive archive, int i) {
+		long start = System.nanoTime();
+		Parser.ParseResult parsed = Parser.parseRecovering(archive.source(i));
+		return new Result(new File(archive.name(i)), parsed.program, parsed.diagnostics, null,
+				System.nanoTime() - start);
+	}
+
+	/** All .prog files below dir, in a stable (sorted) order. */
+	static List<File> findPrograms(File dir) {
+		List<File> files = new ArrayList<File>();
+		collect(dir, files);
+		return files;
+	}
+
+	private static void collect(File dir, List<File> out) {
+		File[] children = dir.listFiles();
+		if (children == null)
+			return;
+		Arrays.sort(children);
+		for (File f : children) {
+			if (f.isDirectory())
+				collect(f, out);
+			else if (f.getName().endsWith(".prog"))
+				out.add(f);
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static class ParseTask extends RecursiveAction {
+
+		// exactly one of files and archive is set
+		private final List<File> files;
+		private final ProgramArchive archive;
+		private final Result[] results;
+		private final int from, to;
+
+		ParseTask(List<File> files, ProgramArchive archive, Result[] results, int from, int to) {
+			this.files = files;
+			this.archive = archive;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= SPLIT_THRESHOLD) {
+				for (int i = from; i < to; i++)
+					results[i] = files != null ? parseOne(files.get(i)) : parseOne(archive, i);
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new ParseTask(files, archive, results, from, mid),
+						new ParseTask(files, archive, results, mid, to));
+			}
+		}
+	}
+}
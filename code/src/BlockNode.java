@@ -0,0 +1,42 @@
+import java.util.ArrayList;
+import java.util.List;
+
+class BlockNode implements StatementNode{
+
+	List<StatementNode> statements;		//STMT -- LIST OF STATEMENTS
+	int tabCounter = 0;
+
+	public BlockNode(){
+		this.statements = new ArrayList<StatementNode>();
+	}
+
+
+	@Override
+	public void execute(Robot robot) {
+		for(StatementNode sn: statements)
+			sn.execute(robot);
+	}
+
+
+
+	public List<StatementNode> getStatements() {
+		return statements;
+	}
+
+
+	public String toString(){
+
+		StringBuilder sb = new StringBuilder();
+
+		sb.append( "{ \n" );
+
+		for(StatementNode sn: statements)
+			sb.append(Parser.indent(sn.toString())+"\n");
+		sb.append( "}" );
+
+		return sb.toString();
+	}
+
+
+
+}
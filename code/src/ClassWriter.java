@@ -0,0 +1,325 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough of a class file writer for {@link ProgramCompiler}: a constant
+ * pool, methods with a Code attribute, and labels for branches. Classes are
+ * written as version 49 (Java 5) so they need no StackMapTable; the JVM checks
+ * them with the type inferencing verifier instead.
+ */
+class ClassWriter {
+
+	static final int ACC_PUBLIC = 0x0001, ACC_FINAL = 0x0010, ACC_SUPER = 0x0020;
+
+	private static final int VERSION = 49;
+
+	// Constant pool tags
+	private static final int UTF8 = 1, INTEGER = 3, CLASS = 7, METHODREF = 10, NAME_AND_TYPE = 12;
+
+	private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+	private final DataOutputStream pool = new DataOutputStream(poolBytes);
+	private final Map<String, Integer> poolIndex = new HashMap<String, Integer>();
+	private int poolCount = 1;
+
+	private final int thisClass, superClass;
+	private final int[] interfaces;
+	private final List<byte[]> methods = new ArrayList<byte[]>();
+
+	ClassWriter(String name, String superName, String... interfaceNames) {
+		thisClass = classRef(name);
+		superClass = classRef(superName);
+		interfaces = new int[interfaceNames.length];
+		for (int i = 0; i < interfaces.length; i++)
+			interfaces[i] = classRef(interfaceNames[i]);
+	}
+
+	// Constant pool
+
+	int utf8(String s) {
+		Integer i = poolIndex.get("U" + s);
+		if (i != null)
+			return i;
+		try {
+			pool.writeByte(UTF8);
+			pool.writeUTF(s);
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // can't happen, writing to memory
+		}
+		return add("U" + s);
+	}
+
+	int integer(int value) {
+		Integer i = poolIndex.get("I" + value);
+		if (i != null)
+			return i;
+		write(INTEGER, value >>> 16, value & 0xffff);
+		return add("I" + value);
+	}
+
+	int classRef(String internalName) {
+		Integer i = poolIndex.get("C" + internalName);
+		if (i != null)
+			return i;
+		int name = utf8(internalName);
+		write(CLASS, name);
+		return add("C" + internalName);
+	}
+
+	int methodRef(String owner, String name, String descriptor) {
+		String key = "M" + owner + "." + name + descriptor;
+		Integer i = poolIndex.get(key);
+		if (i != null)
+			return i;
+		int c = classRef(owner);
+		int nt = nameAndType(name, descriptor);
+		write(METHODREF, c, nt);
+		return add(key);
+	}
+
+	private int nameAndType(String name, String descriptor) {
+		String key = "N" + name + descriptor;
+		Integer i = poolIndex.get(key);
+		if (i != null)
+			return i;
+		int n = utf8(name);
+		int d = utf8(descriptor);
+		write(NAME_AND_TYPE, n, d);
+		return add(key);
+	}
+
+	private void write(int tag, int... u2s) {
+		try {
+			pool.writeByte(tag);
+			for (int v : u2s)
+				pool.writeShort(v);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private int add(String key) {
+		if (poolCount >= 0xffff)
+			throw new IllegalArgumentException("Too many constants for one class");
+		poolIndex.put(key, poolCount);
+		return poolCount++;
+	}
+
+	// Methods
+
+	/** Starts a method, which is added to the class when its Code is ended. */
+	Code method(int access, String name, String descriptor, int argumentSlots) {
+		return new Code(access, utf8(name), utf8(descriptor), argumentSlots);
+	}
+
+	/** The complete class file. */
+	byte[] toByteArray() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(VERSION);
+			out.writeShort(poolCount);
+			pool.flush();
+			poolBytes.writeTo(out);
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(interfaces.length);
+			for (int i : interfaces)
+				out.writeShort(i);
+			out.writeShort(0); // fields
+			out.writeShort(methods.size());
+			for (byte[] m : methods)
+				out.write(m);
+			out.writeShort(0); // attributes
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/** A branch target, which may be used before it is marked. */
+	static class Label {
+		private int offset = -1;
+		private int stack = -1;
+		private final List<Integer> fixups = new ArrayList<Integer>();
+	}
+
+	/**
+	 * The code of one method. Keeps track of the operand stack depth and the
+	 * locals used so max_stack and max_locals can be filled in.
+	 */
+	class Code {
+
+		// Opcodes
+		static final int ICONST_0 = 3, BIPUSH = 16, SIPUSH = 17, LDC_W = 19, ILOAD = 21, ALOAD = 25, IALOAD = 46,
+				ISTORE = 54, IASTORE = 79, POP = 87, IADD = 96, ISUB = 100, IMUL = 104, IDIV = 108, IINC = 132,
+				IFNE = 154, IF_ICMPEQ = 159, IF_ICMPNE = 160, IF_ICMPLT = 161, IF_ICMPGE = 162, IF_ICMPGT = 163,
+				IF_ICMPLE = 164, GOTO = 167, RETURN = 177, INVOKEVIRTUAL = 182, INVOKESPECIAL = 183, WIDE = 196;
+
+		private final int access, name, descriptor;
+		private byte[] code = new byte[256];
+		private int length = 0;
+		private int stack = 0, maxStack = 0;
+		private int locals, maxLocals;
+
+		private Code(int access, int name, int descriptor, int argumentSlots) {
+			this.access = access;
+			this.name = name;
+			this.descriptor = descriptor;
+			this.locals = this.maxLocals = argumentSlots;
+		}
+
+		/** Allocates a new int local. */
+		int newLocal() {
+			maxLocals = Math.max(maxLocals, locals + 1);
+			return locals++;
+		}
+
+		/** An instruction without operands that changes the stack depth by delta. */
+		void op(int opcode, int delta) {
+			u1(opcode);
+			adjust(delta);
+		}
+
+		void iconst(int value) {
+			if (value >= -1 && value <= 5) {
+				op(ICONST_0 + value, 1);
+			} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+				op(BIPUSH, 1);
+				u1(value);
+			} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+				op(SIPUSH, 1);
+				u2(value);
+			} else {
+				op(LDC_W, 1);
+				u2(integer(value));
+			}
+		}
+
+		void iload(int local) {
+			local(ILOAD, local, 1);
+		}
+
+		void istore(int local) {
+			local(ISTORE, local, -1);
+		}
+
+		void aload(int local) {
+			local(ALOAD, local, 1);
+		}
+
+		private void local(int opcode, int local, int delta) {
+			if (local > 0xff) {
+				u1(WIDE);
+				op(opcode, delta);
+				u2(local);
+			} else {
+				op(opcode, delta);
+				u1(local);
+			}
+		}
+
+		void iinc(int local, int by) {
+			if (local > 0xff || by < Byte.MIN_VALUE || by > Byte.MAX_VALUE) {
+				u1(WIDE);
+				u1(IINC);
+				u2(local);
+				u2(by);
+			} else {
+				u1(IINC);
+				u1(local);
+				u1(by);
+			}
+		}
+
+		/**
+		 * Calls a method (invokevirtual or invokespecial). The stack changes by
+		 * the size of the result less the arguments and receiver.
+		 */
+		void invoke(int opcode, String owner, String name, String descriptor, int delta) {
+			op(opcode, delta);
+			u2(methodRef(owner, name, descriptor));
+		}
+
+		/** A conditional branch or goto to the label. */
+		void jump(int opcode, Label target) {
+			int at = length;
+			int pops = opcode == GOTO ? 0 : (opcode >= IF_ICMPEQ && opcode <= IF_ICMPLE ? 2 : 1);
+			op(opcode, -pops);
+			if (target.offset >= 0) {
+				u2(target.offset - at);
+			} else {
+				target.fixups.add(at);
+				u2(0);
+			}
+			if (target.stack < 0)
+				target.stack = stack;
+			if (opcode == GOTO)
+				stack = -1; // unreachable until a label is marked
+		}
+
+		/** Marks the label at the current position. */
+		void mark(Label label) {
+			label.offset = length;
+			for (int at : label.fixups) {
+				int rel = length - at;
+				code[at + 1] = (byte) (rel >> 8);
+				code[at + 2] = (byte) rel;
+			}
+			label.fixups.clear();
+			if (stack < 0)
+				stack = Math.max(label.stack, 0);
+			else if (label.stack < 0)
+				label.stack = stack;
+		}
+
+		/** Ends the method and adds it to the class. */
+		void end() {
+			if (length > Short.MAX_VALUE)
+				throw new IllegalArgumentException("Method is too large to compile (" + length + " bytes)");
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(length + 32);
+			try (DataOutputStream out = new DataOutputStream(bytes)) {
+				out.writeShort(access);
+				out.writeShort(name);
+				out.writeShort(descriptor);
+				out.writeShort(1);
+				out.writeShort(utf8("Code"));
+				out.writeInt(12 + length);
+				out.writeShort(maxStack);
+				out.writeShort(maxLocals);
+				out.writeInt(length);
+				out.write(code, 0, length);
+				out.writeShort(0); // exception table
+				out.writeShort(0); // attributes
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			methods.add(bytes.toByteArray());
+		}
+
+		private void adjust(int delta) {
+			if (stack < 0)
+				stack = 0; // code after an unconditional jump that nothing branches to
+			stack += delta;
+			maxStack = Math.max(maxStack, stack);
+		}
+
+		private void u1(int v) {
+			if (length == code.length)
+				code = Arrays.copyOf(code, code.length * 2);
+			code[length++] = (byte) v;
+		}
+
+		private void u2(int v) {
+			u1(v >> 8);
+			u1(v);
+		}
+	}
+}
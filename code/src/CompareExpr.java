@@ -0,0 +1,16 @@
+/** A Comparison for operands of any shape */
+class CompareExpr extends Comparison{
+
+	private final ExpressionNode l, r;
+
+	public CompareExpr(ConditionalNode generic, int operator, ExpressionNode left, ExpressionNode right){
+		super(generic, operator);
+		this.l = left;
+		this.r = right;
+	}
+
+	@Override
+	public boolean evaluate(Robot robot) {
+		return NodeSpecializer.test(operator, l.evaluate(robot), r.evaluate(robot));
+	}
+}
@@ -0,0 +1,16 @@
+/** A Comparison of a variable and a number: reads the frame directly */
+class CompareSlotConst extends Comparison{
+
+	private final int slot, k;
+
+	public CompareSlotConst(ConditionalNode generic, int operator, ExpressionNode left, ExpressionNode right){
+		super(generic, operator);
+		this.slot = ((VariableNode) left).slot;
+		this.k = ((NumberNode) right).num;
+	}
+
+	@Override
+	public boolean evaluate(Robot robot) {
+		return NodeSpecializer.test(operator, robot.context.frame[slot], k);
+	}
+}
@@ -0,0 +1,17 @@
+/** A Comparison of two variables: reads the frame directly */
+class CompareSlotSlot extends Comparison{
+
+	private final int a, b;
+
+	public CompareSlotSlot(ConditionalNode generic, int operator, ExpressionNode left, ExpressionNode right){
+		super(generic, operator);
+		this.a = ((VariableNode) left).slot;
+		this.b = ((VariableNode) right).slot;
+	}
+
+	@Override
+	public boolean evaluate(Robot robot) {
+		int[] frame = robot.context.frame;
+		return NodeSpecializer.test(operator, frame[a], frame[b]);
+	}
+}
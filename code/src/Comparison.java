@@ -0,0 +1,19 @@
+/**
+ * A gt, lt or eq as NodeSpecializer rewrites it. It keeps the generic node it
+ * replaced, which is what toString and the compilers see (see
+ * NodeSpecializer.generic).
+ */
+abstract class Comparison implements ConditionalNode{
+
+	final ConditionalNode generic;		//The GreaterThanNode, LessThanNode or EqualsNode replaced
+	final int operator;
+
+	Comparison(ConditionalNode generic, int operator){
+		this.generic = generic;
+		this.operator = operator;
+	}
+
+	public String toString(){
+		return generic.toString();
+	}
+}
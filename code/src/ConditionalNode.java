@@ -0,0 +1,3 @@
+interface ConditionalNode{
+	public boolean evaluate(Robot robot);
+}
@@ -0,0 +1,40 @@
+/**
+ * A syntax error found by the Parser: where it is, what was expected there and
+ * which token was found instead. The human readable context (the tokens
+ * following the error) is only built when the diagnostic is printed.
+ */
+class Diagnostic {
+
+	final String message;
+	final String expected;
+	final String found;
+	final int line, column;
+
+	private final TokenStream tokens;
+	private final int index;
+
+	Diagnostic(String message, String expected, TokenStream tokens) {
+		this.message = message;
+		this.expected = expected;
+		this.tokens = tokens;
+		this.index = tokens.pos;
+		this.line = tokens.line();
+		this.column = tokens.column();
+		this.found = tokens.hasNext() ? tokens.text() : "end of file";
+	}
+
+	/**
+	 * The message, its position and the next few tokens, in the same format the
+	 * parser has always reported errors in.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder msg = new StringBuilder(message.trim());
+		msg.append(" (line ").append(line).append(", column ").append(column).append(")");
+		msg.append("\n   @ ...");
+		for (int i = index; i < index + 5 && i < tokens.size() - 1; i++) {
+			msg.append(' ').append(tokens.text(i));
+		}
+		return msg.append("...").toString();
+	}
+}
@@ -0,0 +1,17 @@
+class DivNode implements OPNode{
+
+	@Override
+	public String getOP() {
+		return "div";
+	}
+
+	@Override
+	public int evaluate(Robot robot) {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
+	public String toString(){
+		return "div";
+	}
+}
@@ -0,0 +1,128 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Profile-guided ordering of the elifs of one if. Elifs are tried in source
+ * order and the first that holds is taken, so their order only matters if
+ * more than one can hold, or if testing them has side effects. When neither
+ * is possible, i.e. every elif compares the same pure expression (numbers,
+ * variables and arithmetic that can't fail) against a number with ranges
+ * that don't overlap, as in
+ *
+ * <pre>
+ * if (...) {...} elif (lt($d, 0)) {...} elif (eq($d, 0)) {...} elif (gt($d, 0)) {...}
+ * </pre>
+ *
+ * the if counts how often each elif is taken and every PERIOD times puts the
+ * most frequently taken first. The new order is published as a whole new
+ * array, so a robot running the if sees either the old order or the new one.
+ * Counts are halved at each reordering so the order follows changes in the
+ * program's behaviour. Counting races between robots sharing the tree can
+ * lose increments, which only makes the order a little less exact.
+ *
+ * Off by default; set the robot.profile.elifs system property to true to
+ * enable it, and robot.profile.period for the number of elifs taken between
+ * reorderings.
+ */
+class ElifProfile {
+
+	static final boolean ENABLED = Boolean.getBoolean("robot.profile.elifs");
+	static final int PERIOD = Integer.getInteger("robot.profile.period", 1000);
+
+	private static final Comparator<IFNode.Elif> MOST_TAKEN = new Comparator<IFNode.Elif>() {
+		@Override
+		public int compare(IFNode.Elif a, IFNode.Elif b) {
+			return Integer.compare(b.hits, a.hits);
+		}
+	};
+
+	private volatile IFNode.Elif[] order;
+	private int taken = 0;
+
+	private ElifProfile(IFNode.Elif[] elifs) {
+		order = elifs.clone();
+	}
+
+	/**
+	 * A profile for the elifs if they can be reordered (and profiling is
+	 * enabled), otherwise null.
+	 */
+	static ElifProfile create(IFNode.Elif[] elifs) {
+		if (!ENABLED || elifs.length < 2 || !exclusive(elifs))
+			return null;
+		return new ElifProfile(elifs);
+	}
+
+	/** The elifs in the order to try them. */
+	IFNode.Elif[] order() {
+		return order;
+	}
+
+	/** Called when the elif is taken. */
+	void taken(IFNode.Elif elif) {
+		elif.hits++;
+		if (++taken >= PERIOD) {
+			taken = 0;
+			IFNode.Elif[] sorted = order.clone();
+			Arrays.sort(sorted, MOST_TAKEN); // stable, so ties keep their order
+			for (IFNode.Elif e : sorted)
+				e.hits /= 2;
+			order = sorted;
+		}
+	}
+
+	// Whether the elifs are mutually exclusive and free of side effects
+
+	private static boolean exclusive(IFNode.Elif[] elifs) {
+		ExpressionNode subject = null;
+		long[][] ranges = new long[elifs.length][];
+		for (int i = 0; i < elifs.length; i++) {
+			ConditionalNode c = NodeSpecializer.generic(elifs[i].condition);
+			ExpressionNode left, right;
+			if (c instanceof GreaterThanNode) {
+				left = ((GreaterThanNode) c).left;
+				right = ((GreaterThanNode) c).right;
+			} else if (c instanceof LessThanNode) {
+				left = ((LessThanNode) c).left;
+				right = ((LessThanNode) c).right;
+			} else if (c instanceof EqualsNode) {
+				left = ((EqualsNode) c).left;
+				right = ((EqualsNode) c).right;
+			} else {
+				return false;
+			}
+			// put the number on the right, swapping gt and lt to match
+			boolean swapped = false;
+			if (left instanceof NumberNode && !(right instanceof NumberNode)) {
+				ExpressionNode t = left;
+				left = right;
+				right = t;
+				swapped = true;
+			}
+			if (!(right instanceof NumberNode) || !ProgramOptimizer.pure(left))
+				return false;
+			if (subject == null)
+				subject = left;
+			else if (!ProgramOptimizer.same(subject, left))
+				return false;
+			long k = ((NumberNode) right).num;
+			boolean gt = c instanceof GreaterThanNode != swapped;
+			if (c instanceof EqualsNode)
+				ranges[i] = new long[] { k, k };
+			else if (gt)
+				ranges[i] = new long[] { k + 1, Integer.MAX_VALUE };
+			else
+				ranges[i] = new long[] { Integer.MIN_VALUE, k - 1 };
+		}
+		Arrays.sort(ranges, new Comparator<long[]>() {
+			@Override
+			public int compare(long[] a, long[] b) {
+				return Long.compare(a[0], b[0]);
+			}
+		});
+		for (int i = 1; i < ranges.length; i++)
+			if (ranges[i][0] <= ranges[i - 1][1])
+				return false;
+		return true;
+	}
+}
@@ -0,0 +1,26 @@
+/**
+ * The run time state of one program running on one robot: its variables (by
+ * the slots the VariableTable gave them) and any interpreter caches, such as
+ * the sensor readings.
+ *
+ * The program tree keeps only what it learns about itself while running: the
+ * back edge counts and compiled code of its loops (LoopTier), the specialised
+ * nodes it rewrites itself into (NodeSpecializer) and the counts of the elifs
+ * taken (ElifProfile). All of these tolerate robots running the same tree at
+ * once, but the ParseCache gives every load a tree of its own anyway.
+ */
+class ExecutionContext {
+
+	final ProgramNode program;
+
+	/** The variables, by slot. Unassigned variables are 0 */
+	final int[] frame;
+
+	/** The sensors read in the robot's current epoch */
+	final SensorCache sensors = new SensorCache();
+
+	ExecutionContext(ProgramNode program) {
+		this.program = program;
+		this.frame = new int[program.variables.length];
+	}
+}
@@ -0,0 +1,3 @@
+interface ExpressionNode{
+	public int evaluate(Robot robot);
+}
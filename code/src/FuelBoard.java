@@ -0,0 +1,94 @@
+/**
+ * The fuel barrels on the board, as a bitboard: a bit per cell, set if there
+ * is a barrel there, with cell y * World.SIZE + x in bit (cell % 64) of word
+ * cell / 64. Testing, adding and removing a barrel are bit operations, and a
+ * snapshot of the whole board is a copy of a few longs.
+ *
+ * The world adds barrels, the robots take them and the GUI draws them, each
+ * possibly on its own thread, so the board is synchronized. Snapshots can be
+ * read without locking.
+ */
+class FuelBoard {
+
+	static final int CELLS = World.SIZE * World.SIZE;
+
+	private final long[] bits = new long[(CELLS + 63) >>> 6];
+
+	/**
+	 * The cell at x, y.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if it is not on the board
+	 */
+	static int cell(int x, int y) {
+		if (x < 0 || x >= World.SIZE || y < 0 || y >= World.SIZE)
+			throw new IllegalArgumentException("(" + x + "," + y + ") is not on the board");
+		return y * World.SIZE + x;
+	}
+
+	static int x(int cell) {
+		return cell % World.SIZE;
+	}
+
+	static int y(int cell) {
+		return cell / World.SIZE;
+	}
+
+	synchronized boolean contains(int x, int y) {
+		int cell = cell(x, y);
+		return (bits[cell >>> 6] & 1L << cell) != 0;
+	}
+
+	synchronized void add(int x, int y) {
+		int cell = cell(x, y);
+		bits[cell >>> 6] |= 1L << cell;
+	}
+
+	/** Removes the barrel at x, y, returning whether there was one. */
+	synchronized boolean remove(int x, int y) {
+		int cell = cell(x, y);
+		long mask = 1L << cell;
+		boolean had = (bits[cell >>> 6] & mask) != 0;
+		bits[cell >>> 6] &= ~mask;
+		return had;
+	}
+
+	synchronized void clear() {
+		for (int i = 0; i < bits.length; i++)
+			bits[i] = 0;
+	}
+
+	synchronized boolean isEmpty() {
+		for (long word : bits)
+			if (word != 0)
+				return false;
+		return true;
+	}
+
+	/** A copy of the board's bits, to read with size and next. */
+	synchronized long[] snapshot() {
+		return bits.clone();
+	}
+
+	/** The number of barrels in a snapshot. */
+	static int size(long[] snapshot) {
+		int n = 0;
+		for (long word : snapshot)
+			n += Long.bitCount(word);
+		return n;
+	}
+
+	/** The first cell from the given one on with a barrel in the snapshot, or -1 if there is none. */
+	static int next(long[] snapshot, int from) {
+		int i = from >>> 6;
+		if (i >= snapshot.length)
+			return -1;
+		long word = snapshot[i] & -1L << from;
+		while (word == 0) {
+			if (++i == snapshot.length)
+				return -1;
+			word = snapshot[i];
+		}
+		return (i << 6) + Long.numberOfTrailingZeros(word);
+	}
+}
@@ -0,0 +1,11 @@
+class FuelLeftNode implements SensorNode{
+
+	@Override
+	public int evaluate(Robot robot) {
+		return robot.context.sensors.read(robot, SensorCache.FUEL);
+	}
+
+	public String toString(){
+		return "FuelLeft";
+	}
+}
@@ -0,0 +1,161 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Where fuel barrels appear in a game, tick by tick: tick 0 when the game
+ * starts, then tick t at the tth updateWorld. A schedule is worked out in
+ * advance and kept as two int arrays, the barrels of every tick in order and
+ * the index of each tick's first barrel, so it is immutable, small, and can be
+ * shared by any number of worlds at once with no random numbers drawn while
+ * they play. Nothing appears after the last tick of a schedule.
+ *
+ * Schedules are made by random (the same fuel a World with that seed places
+ * itself), read from a script of "tick x y" lines, or recorded from a world as
+ * it plays (World.fuelPlaced) and written out with write to be replayed.
+ */
+class FuelSchedule {
+
+	/** Index into cells of each tick's first barrel, and the end of the last tick's */
+	private final int[] first;
+
+	/** The barrels' cells, as FuelBoard numbers them */
+	private final int[] cells;
+
+	private FuelSchedule(int[] first, int[] cells) {
+		this.first = first;
+		this.cells = cells;
+	}
+
+	/** The number of ticks the schedule covers. */
+	int ticks() {
+		return first.length - 1;
+	}
+
+	/** The number of barrels that appear on the tick. */
+	int count(int tick) {
+		return tick < ticks() ? first[tick + 1] - first[tick] : 0;
+	}
+
+	/** The cell of the ith barrel that appears on the tick. */
+	int cell(int tick, int i) {
+		return cells[first[tick] + i];
+	}
+
+	/**
+	 * The cell of the nth fuel drawn from the seed, or -1 if none appears.
+	 * Fuel that is placed definitely always appears, otherwise with a chance
+	 * of 1 in 5. This is where a World without a schedule gets its fuel.
+	 */
+	static int random(long seed, long n, boolean definitely) {
+		long r = SplitMix.next(seed, n);
+		if (!definitely && SplitMix.fraction(r) >= 0.2)
+			return -1;
+		long place = SplitMix.mix(r);
+		return SplitMix.below(World.SIZE, place) * World.SIZE + SplitMix.below(World.SIZE, place >>> 32);
+	}
+
+	/**
+	 * The fuel a World with the given seed places over the given number of
+	 * ticks: two barrels at the start, and then one on a fifth of the ticks.
+	 */
+	static FuelSchedule random(long seed, int ticks) {
+		Builder b = new Builder();
+		b.add(0, random(seed, 0, true));
+		b.add(0, random(seed, 1, true));
+		for (int t = 1; t < ticks; t++) {
+			int cell = random(seed, t + 1, false);
+			if (cell >= 0)
+				b.add(t, cell);
+		}
+		return b.build(ticks);
+	}
+
+	/**
+	 * Reads a schedule written by write, or by hand: a line "tick x y" per
+	 * barrel, in any order. Blank lines and lines starting with # are ignored.
+	 *
+	 * @throws IOException
+	 *             if the file can't be read or a line is not a barrel on the
+	 *             board
+	 */
+	static FuelSchedule read(File file) throws IOException {
+		List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+		long[] barrels = new long[lines.size()];
+		int n = 0, ticks = 0;
+		for (int i = 0; i < lines.size(); i++) {
+			String line = lines.get(i).trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+			String[] parts = line.split("\\s+");
+			try {
+				if (parts.length != 3)
+					throw new NumberFormatException();
+				int tick = Integer.parseInt(parts[0]), x = Integer.parseInt(parts[1]), y = Integer.parseInt(parts[2]);
+				if (tick < 0 || x < 0 || x >= World.SIZE || y < 0 || y >= World.SIZE)
+					throw new NumberFormatException();
+				barrels[n++] = (long) tick << 32 | (y * World.SIZE + x);
+				ticks = Math.max(ticks, tick + 1);
+			} catch (NumberFormatException e) {
+				throw new IOException(file + " line " + (i + 1) + ": expected tick x y, got " + line);
+			}
+		}
+		Arrays.sort(barrels, 0, n);
+		Builder b = new Builder();
+		for (int i = 0; i < n; i++)
+			b.add((int) (barrels[i] >>> 32), (int) barrels[i]);
+		return b.build(ticks);
+	}
+
+	/** Writes the schedule as lines "tick x y", for read. */
+	void write(File file) throws IOException {
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+			out.println("# tick x y, " + ticks() + " ticks");
+			for (int t = 0; t < ticks(); t++)
+				for (int i = 0; i < count(t); i++)
+					out.println(t + " " + FuelBoard.x(cell(t, i)) + " " + FuelBoard.y(cell(t, i)));
+		}
+	}
+
+	/** Collects barrels in tick order, for a schedule. */
+	static class Builder {
+		private int[] first = new int[16];
+		private int[] cells = new int[16];
+		private int ticks = 0, barrels = 0;
+
+		/** Adds a barrel on the tick, which must be no earlier than the last one added. */
+		void add(int tick, int cell) {
+			if (tick < ticks - 1)
+				throw new IllegalArgumentException("Fuel added for tick " + tick + " after tick " + (ticks - 1));
+			advance(tick + 1);
+			if (barrels == cells.length)
+				cells = Arrays.copyOf(cells, barrels * 2);
+			cells[barrels++] = cell;
+			first[ticks] = barrels;
+		}
+
+		/** Starts ticks up to the given count, with no barrels. */
+		private void advance(int count) {
+			if (count + 1 > first.length)
+				first = Arrays.copyOf(first, Math.max(first.length * 2, count + 1));
+			while (ticks < count)
+				first[++ticks] = barrels;
+		}
+
+		/**
+		 * The schedule of the barrels added, covering the given number of ticks
+		 * (at least). The builder is left as it was, so more barrels can still
+		 * be added to it, even on earlier ticks than the given count.
+		 */
+		FuelSchedule build(int ticks) {
+			int count = Math.max(ticks, this.ticks);
+			int[] f = Arrays.copyOf(first, count + 1);
+			Arrays.fill(f, this.ticks + 1, count + 1, barrels);
+			return new FuelSchedule(f, Arrays.copyOf(cells, barrels));
+		}
+	}
+}
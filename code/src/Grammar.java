@@ -0,0 +1,89 @@
+/**
+ * The LL(1) parse table for the robot language. For every nonterminal the
+ * table maps the kind of the next token to the production that must be used,
+ * so the parser picks a production with a single array lookup instead of
+ * trying each alternative in turn.
+ *
+ * The grammar itself is documented on {@link Parser}.
+ */
+class Grammar {
+
+	// Nonterminals that need a decision
+	static final int STMT = 0, ACT = 1, COND = 2, EXP = 3, SEN = 4, OP = 5;
+	private static final int NT_COUNT = 6;
+
+	// Productions, 0 means there is no production for that token (a syntax error)
+	static final int NONE = 0;
+
+	static final int STMT_ACT = 1, STMT_LOOP = 2, STMT_WHILE = 3, STMT_IF = 4, STMT_ASSGN = 5;
+
+	static final int ACT_MOVE = 10, ACT_TURNL = 11, ACT_TURNR = 12, ACT_TURNAROUND = 13, ACT_SHIELDON = 14,
+			ACT_SHIELDOFF = 15, ACT_TAKEFUEL = 16, ACT_WAIT = 17;
+
+	static final int COND_AND = 20, COND_OR = 21, COND_NOT = 22, COND_LT = 23, COND_GT = 24, COND_EQ = 25;
+
+	static final int EXP_NUM = 30, EXP_SEN = 31, EXP_OP = 32, EXP_VAR = 33;
+
+	static final int SEN_FUELLEFT = 40, SEN_OPPLR = 41, SEN_OPPFB = 42, SEN_NUMBARRELS = 43, SEN_BARRELLR = 44,
+			SEN_BARRELFB = 45, SEN_WALLDIST = 46;
+
+	static final int OP_ADD = 50, OP_SUB = 51, OP_MUL = 52, OP_DIV = 53;
+
+	private static final byte[][] PREDICT = new byte[NT_COUNT][Lexer.KIND_COUNT];
+
+	static {
+		int[] actions = { Lexer.MOVE, Lexer.TURNL, Lexer.TURNR, Lexer.TURNAROUND, Lexer.SHIELDON, Lexer.SHIELDOFF,
+				Lexer.TAKEFUEL, Lexer.WAIT };
+		int[] sensors = { Lexer.FUELLEFT, Lexer.OPPLR, Lexer.OPPFB, Lexer.NUMBARRELS, Lexer.BARRELLR,
+				Lexer.BARRELFB, Lexer.WALLDIST };
+		int[] operators = { Lexer.ADD, Lexer.SUB, Lexer.MUL, Lexer.DIV };
+
+		// STMT ::= ACT ; | LOOP | IF | WHILE | ASSGN ;
+		for (int kind : actions)
+			set(STMT, kind, STMT_ACT);
+		set(STMT, Lexer.LOOP, STMT_LOOP);
+		set(STMT, Lexer.WHILE, STMT_WHILE);
+		set(STMT, Lexer.IF, STMT_IF);
+		set(STMT, Lexer.VAR, STMT_ASSGN);
+
+		// ACT ::= move [ ( EXP ) ] | turnL | ... | wait [ ( EXP ) ]
+		for (int i = 0; i < actions.length; i++)
+			set(ACT, actions[i], ACT_MOVE + i);
+
+		// COND ::= and ( COND, COND ) | or ( COND, COND ) | not ( COND ) | lt ( EXP, EXP ) | gt ( EXP, EXP ) | eq ( EXP, EXP )
+		set(COND, Lexer.AND, COND_AND);
+		set(COND, Lexer.OR, COND_OR);
+		set(COND, Lexer.NOT, COND_NOT);
+		set(COND, Lexer.LT, COND_LT);
+		set(COND, Lexer.GT, COND_GT);
+		set(COND, Lexer.EQ, COND_EQ);
+
+		// EXP ::= NUM | SEN | OP ( EXP, EXP ) | VAR
+		set(EXP, Lexer.NUM, EXP_NUM);
+		for (int kind : sensors)
+			set(EXP, kind, EXP_SEN);
+		for (int kind : operators)
+			set(EXP, kind, EXP_OP);
+		set(EXP, Lexer.VAR, EXP_VAR);
+
+		// SEN ::= fuelLeft | oppLR | oppFB | numBarrels | barrelLR [ ( EXP ) ] | barrelFB [ ( EXP ) ] | wallDist
+		for (int i = 0; i < sensors.length; i++)
+			set(SEN, sensors[i], SEN_FUELLEFT + i);
+
+		// OP ::= add | sub | mul | div
+		for (int i = 0; i < operators.length; i++)
+			set(OP, operators[i], OP_ADD + i);
+	}
+
+	private static void set(int nonterminal, int kind, int production) {
+		PREDICT[nonterminal][kind] = (byte) production;
+	}
+
+	/**
+	 * The production to use for the nonterminal when the next token has the
+	 * given kind, or NONE.
+	 */
+	static int predict(int nonterminal, int kind) {
+		return PREDICT[nonterminal][kind];
+	}
+}
@@ -0,0 +1,107 @@
+import java.util.Arrays;
+
+class IFNode implements StatementNode{
+
+	ConditionalNode condition;
+	Elif[] elifs = new Elif[0];		//The elif branches, in source order
+	BlockNode mainBlock, elseBlock;
+	private volatile boolean prepared;		//See prepare
+	private ElifProfile profile;		//Null unless the elifs may be reordered
+
+	/** An elif branch */
+	static class Elif{
+
+		ConditionalNode condition;
+		final BlockNode block;
+		int hits;		//Times taken, counted by ElifProfile
+
+		Elif(ConditionalNode condition, BlockNode block){
+			this.condition = condition;
+			this.block = block;
+		}
+	}
+
+	public IFNode(ConditionalNode c, BlockNode b){
+		this.condition = c;
+		this.mainBlock = b;
+	}
+
+	public void addElif(ConditionalNode c, BlockNode b){
+		elifs = Arrays.copyOf(elifs, elifs.length + 1);
+		elifs[elifs.length - 1] = new Elif(c, b);
+	}
+
+	@Override
+	public void execute(Robot robot) {
+		if(!prepared)
+			prepare();
+
+		//Each condition is evaluated at most once, and the first branch that holds is taken
+		if(condition.evaluate(robot)){
+			mainBlock.execute(robot);
+			return;
+		}
+		ElifProfile p = profile;
+		for(Elif e : p == null ? elifs : p.order()){
+			if(e.condition.evaluate(robot)){
+				if(p != null)
+					p.taken(e);
+				e.block.execute(robot);
+				return;
+			}
+		}
+		if(elseBlock != null)
+			elseBlock.execute(robot);
+	}
+
+	/**
+	 * Specialises the conditions and profiles the elifs once, before the if
+	 * first runs, see NodeSpecializer, ElifProfile and LoopTier
+	 */
+	synchronized void prepare(){
+		if(!prepared){
+			if(NodeSpecializer.ENABLED){
+				condition = NodeSpecializer.condition(condition);
+				for(Elif e : elifs)
+					e.condition = NodeSpecializer.condition(e.condition);
+			}
+			profile = ElifProfile.create(elifs);
+			prepared = true;
+		}
+	}
+
+	public void setElseBlock(BlockNode e){
+		this.elseBlock = e;
+	}
+
+	public String toString(){
+
+		String ifString = null;
+
+		if(elifs.length == 0 && elseBlock == null){
+			ifString = "if ("+this.condition +")"+ this.mainBlock;
+		}
+		else if(elifs.length == 0 && elseBlock != null){
+			ifString =  "if("+this.condition +")"+ this.mainBlock +"\n"+
+					"else"+ this.elseBlock;
+		}
+		else if(elifs.length > 0 && elseBlock == null){
+			ifString = "if ("+this.condition +")"+ this.mainBlock;
+			for(Elif e : elifs){
+				ifString += "elif("+e.condition+")"+e.block+"\n";
+			}
+		}
+		else{
+			ifString = "if ("+this.condition +")"+ this.mainBlock;
+			for(Elif e : elifs){
+				ifString += "elif("+e.condition+")"+e.block+"\n";
+			}
+			ifString += "else" + this.elseBlock;
+		}
+
+		return ifString;
+
+	}
+
+
+}
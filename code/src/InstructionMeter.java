@@ -0,0 +1,108 @@
+/**
+ * Limits how long a program may run between actions. A robot only waits for
+ * the world's next tick when it acts, so a program like
+ *
+ * <pre>
+ * loop { $x = add($x, 1); }
+ * </pre>
+ *
+ * would otherwise keep its thread busy forever, and could only be stopped
+ * through a sensor or action noticing it has been cancelled.
+ *
+ * Every loop charges the robot for each iteration, by Robot.charge, at its
+ * back edge: the number of nodes its body (and for a while, its condition)
+ * can evaluate in one iteration, not counting nested loops, which charge for
+ * themselves. Everything else a program does between two actions runs at most
+ * once, so this bounds the work of a turn by the budget plus the size of the
+ * program. The interpreter, ProgramCompiler and the RegisterVM all charge the
+ * same amounts at the same points. The costs are those of the tree that runs,
+ * so a program the ProgramOptimizer has shrunk gets through more iterations
+ * of a loop before running out than the same program unoptimized would: under
+ * a budget, optimizing can change when a robot runs out.
+ *
+ * A robot that runs out of steps before acting either waits for the next tick
+ * as if it had called wait (using fuel, so a program that never acts still
+ * runs out of it), or is stopped. Its steps are refilled each time it acts.
+ *
+ * Since waiting uses fuel a program that was merely slow to act would not have
+ * used, robots on threads of their own have no limit unless the robot.steps
+ * system property sets the number of steps allowed per turn, and play as they
+ * always have. Stepped robots (see World.startStepped) run on the caller's
+ * thread, which a program that never acts would never give back, so they are
+ * limited to robot.stepped.steps (100000 by default, 0 for no limit) unless
+ * robot.steps is set. Set robot.steps.policy to terminate to stop robots that
+ * run out rather than make them wait.
+ */
+class InstructionMeter {
+
+	static final int BUDGET = Integer.getInteger("robot.steps", 0);
+	static final int STEPPED_BUDGET = Integer.getInteger("robot.steps", Integer.getInteger("robot.stepped.steps", 100000));
+	static final boolean TERMINATE = "terminate".equals(System.getProperty("robot.steps.policy"));
+
+	/** The steps a program with the given budget (0 for no limit) starts each turn with. */
+	static int steps(int budget) {
+		return budget > 0 ? budget : Integer.MAX_VALUE;
+	}
+
+	/** The cost of one iteration of a loop or while statement. */
+	static int loopCost(StatementNode loop) {
+		if (loop instanceof WhileNode)
+			return 1 + conditionCost(((WhileNode) loop).condition) + block(((WhileNode) loop).block);
+		return 1 + block(((LoopNode) loop).block);
+	}
+
+	private static int block(BlockNode block) {
+		int n = 0;
+		for (StatementNode s : block.getStatements())
+			n += statement(s);
+		return n;
+	}
+
+	private static int statement(StatementNode s) {
+		if (s instanceof MoveNode)
+			return ((MoveNode) s).exp == null ? 1 : 1 + expressionCost(((MoveNode) s).exp);
+		if (s instanceof WaitNode)
+			return ((WaitNode) s).exp == null ? 1 : 1 + expressionCost(((WaitNode) s).exp);
+		if (s instanceof AssignmentNode)
+			return 1 + expressionCost(((AssignmentNode) s).exp);
+		if (s instanceof WhileNode)
+			return 1 + conditionCost(((WhileNode) s).condition); // the first test, the iterations charge themselves
+		if (s instanceof IFNode) {
+			IFNode i = (IFNode) s;
+			int n = 1 + conditionCost(i.condition) + block(i.mainBlock);
+			for (IFNode.Elif e : i.elifs)
+				n += conditionCost(e.condition) + block(e.block);
+			return i.elseBlock == null ? n : n + block(i.elseBlock);
+		}
+		if (s instanceof BlockNode)
+			return block((BlockNode) s);
+		return 1; // actions, and loops, which charge for themselves
+	}
+
+	private static int conditionCost(ConditionalNode c) {
+		c = NodeSpecializer.generic(c);
+		if (c instanceof AndNode)
+			return 1 + conditionCost(((AndNode) c).left) + conditionCost(((AndNode) c).right);
+		if (c instanceof OrNode)
+			return 1 + conditionCost(((OrNode) c).left) + conditionCost(((OrNode) c).right);
+		if (c instanceof NotNode)
+			return 1 + conditionCost(((NotNode) c).cond);
+		if (c instanceof GreaterThanNode)
+			return 1 + expressionCost(((GreaterThanNode) c).left) + expressionCost(((GreaterThanNode) c).right);
+		if (c instanceof LessThanNode)
+			return 1 + expressionCost(((LessThanNode) c).left) + expressionCost(((LessThanNode) c).right);
+		if (c instanceof EqualsNode)
+			return 1 + expressionCost(((EqualsNode) c).left) + expressionCost(((EqualsNode) c).right);
+		return 1;
+	}
+
+	private static int expressionCost(ExpressionNode e) {
+		if (e instanceof OPNodeExpr)
+			return 1 + expressionCost(((OPNodeExpr) e).left) + expressionCost(((OPNodeExpr) e).right);
+		if (e instanceof BarrelLRNode && ((BarrelLRNode) e).exp != null)
+			return 1 + expressionCost(((BarrelLRNode) e).exp);
+		if (e instanceof BarrelFBNode && ((BarrelFBNode) e).exp != null)
+			return 1 + expressionCost(((BarrelFBNode) e).exp);
+		return 1;
+	}
+}
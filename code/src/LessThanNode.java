@@ -0,0 +1,26 @@
+class LessThanNode implements ConditionalNode{
+
+	ExpressionNode left;
+	ExpressionNode right;
+
+	public LessThanNode(ExpressionNode left, ExpressionNode right){
+		this.left = left;
+		this.right = right;
+	}
+
+	@Override
+	public boolean evaluate(Robot robot) {
+
+		int l = left.evaluate(robot);
+		int r = right.evaluate(robot);
+
+		if( l < r)
+			return true;
+		else
+			return false;
+	}
+
+	public String toString(){
+		return "lt( "+left+", "+right+ ")";
+	}
+}
@@ -0,0 +1,255 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Single pass lexer for robot programs. The source is scanned exactly once and
+ * turned into a compact token stream: for every token we keep its kind code,
+ * its offset and length in the source, an int value (for numbers) and the
+ * line/column it started on.
+ *
+ * The only time tokens can be next to each other is when one of them is one of
+ * (){},; so everything else is separated by whitespace, exactly like the old
+ * Scanner delimiter.
+ *
+ * The lexer reads bytes straight out of a ByteBuffer (heap, direct or memory
+ * mapped) and treats them as ASCII, which is all a valid program can contain:
+ * any other byte simply ends up inside an ERROR token. No Strings are created
+ * while scanning.
+ */
+class Lexer {
+
+	// Token kinds
+	static final int EOF = 0, IDENT = 1, NUM = 2, VAR = 3, LPAREN = 4, RPAREN = 5, LBRACE = 6, RBRACE = 7, COMMA = 8,
+			SEMI = 9, ASSIGN = 10, ERROR = 11;
+
+	// Keyword token kinds, resolved by Keywords.lookup
+	static final int MOVE = 12, TURNL = 13, TURNR = 14, TURNAROUND = 15, SHIELDON = 16, SHIELDOFF = 17, TAKEFUEL = 18,
+			WAIT = 19, LOOP = 20, WHILE = 21, IF = 22, ELIF = 23, ELSE = 24, AND = 25, OR = 26, NOT = 27, LT = 28,
+			GT = 29, EQ = 30, FUELLEFT = 31, OPPLR = 32, OPPFB = 33, NUMBARRELS = 34, BARRELLR = 35, BARRELFB = 36,
+			WALLDIST = 37, ADD = 38, SUB = 39, MUL = 40, DIV = 41;
+
+	static final int KIND_COUNT = 42;
+
+	private final ByteBuffer buf;
+	private final int end;
+
+	private int pos, line = 1, lineStart;
+
+	/**
+	 * A lexer for the bytes between the buffer's position and limit. The
+	 * buffer is only read with absolute gets, so it may be shared between
+	 * threads.
+	 */
+	Lexer(ByteBuffer buf) {
+		this.buf = buf;
+		this.pos = buf.position();
+		this.lineStart = pos;
+		this.end = buf.limit();
+	}
+
+	/** Tokenizes the whole of the given source. */
+	static TokenStream lex(String src) {
+		return lex(ByteBuffer.wrap(src.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/** Tokenizes the remaining bytes of the buffer. */
+	static TokenStream lex(ByteBuffer src) {
+		return new Lexer(src).lex();
+	}
+
+	/**
+	 * Scans the whole buffer, the returned stream always ends with an EOF token.
+	 */
+	TokenStream lex() {
+		TokenStream out = new TokenStream(buf, Math.max(16, (end - pos) / 3));
+		while (true) {
+			skipWhitespace();
+			int start = pos;
+			int col = start - lineStart + 1;
+			if (pos >= end) {
+				out.add(EOF, start, 0, 0, line, col);
+				return out;
+			}
+			int c = at(pos);
+			switch (c) {
+			case '(':
+				pos++;
+				out.add(LPAREN, start, 1, 0, line, col);
+				continue;
+			case ')':
+				pos++;
+				out.add(RPAREN, start, 1, 0, line, col);
+				continue;
+			case '{':
+				pos++;
+				out.add(LBRACE, start, 1, 0, line, col);
+				continue;
+			case '}':
+				pos++;
+				out.add(RBRACE, start, 1, 0, line, col);
+				continue;
+			case ',':
+				pos++;
+				out.add(COMMA, start, 1, 0, line, col);
+				continue;
+			case ';':
+				pos++;
+				out.add(SEMI, start, 1, 0, line, col);
+				continue;
+			}
+
+			int kind;
+			int value = 0;
+			if (isLetter(c)) {
+				pos++;
+				while (pos < end && isLetterOrDigit(at(pos)))
+					pos++;
+				kind = Keywords.lookup(buf, start, pos - start);
+			} else if (c == '$' && pos + 1 < end && isLetter(at(pos + 1))) {
+				pos += 2;
+				while (pos < end && isLetterOrDigit(at(pos)))
+					pos++;
+				kind = VAR;
+			} else if (isDigit(c) || (c == '-' && pos + 1 < end && isDigit(at(pos + 1)))) {
+				boolean negative = c == '-';
+				if (negative)
+					pos++;
+				long n = 0;
+				while (pos < end && isDigit(at(pos)) && n <= Integer.MAX_VALUE + 1L) {
+					n = n * 10 + (at(pos) - '0');
+					pos++;
+				}
+				if (negative)
+					n = -n;
+				kind = (n < Integer.MIN_VALUE || n > Integer.MAX_VALUE) ? ERROR : NUM;
+				value = (int) n;
+			} else if (c == '=') {
+				pos++;
+				kind = ASSIGN;
+			} else {
+				kind = ERROR;
+			}
+
+			// a token must be followed by a delimiter, otherwise the whole run
+			// is one malformed token (as the Scanner would have seen it)
+			if (pos < end && !isDelimiter(at(pos))) {
+				while (pos < end && !isDelimiter(at(pos)))
+					pos++;
+				kind = ERROR;
+			}
+			out.add(kind, start, pos - start, value, line, col);
+		}
+	}
+
+	/** The byte at i as an unsigned value */
+	private int at(int i) {
+		return buf.get(i) & 0xff;
+	}
+
+	private void skipWhitespace() {
+		while (pos < end) {
+			int c = at(pos);
+			if (c == '\n') {
+				line++;
+				lineStart = pos + 1;
+			} else if (!isWhitespace(c)) {
+				return;
+			}
+			pos++;
+		}
+	}
+
+	private static boolean isWhitespace(int c) {
+		return c < 0x80 && Character.isWhitespace(c);
+	}
+
+	private static boolean isDelimiter(int c) {
+		switch (c) {
+		case '(':
+		case ')':
+		case '{':
+		case '}':
+		case ',':
+		case ';':
+			return true;
+		}
+		return isWhitespace(c);
+	}
+
+	private static boolean isLetter(int c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	private static boolean isDigit(int c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isLetterOrDigit(int c) {
+		return isLetter(c) || isDigit(c);
+	}
+}
+
+/**
+ * Resolves identifiers to keyword token kinds through a perfect hash: every
+ * keyword lands in its own slot of a small table, so a lookup is one hash over
+ * the characters and one comparison against the single candidate.
+ */
+class Keywords {
+
+	private static final String[] WORDS = { "move", "turnL", "turnR", "turnAround", "shieldOn", "shieldOff",
+			"takeFuel", "wait", "loop", "while", "if", "elif", "else", "and", "or", "not", "lt", "gt", "eq",
+			"fuelLeft", "oppLR", "oppFB", "numBarrels", "barrelLR", "barrelFB", "wallDist", "add", "sub", "mul",
+			"div" };
+
+	private static final int SIZE = 64;
+
+	private static final byte[][] slotWords = new byte[SIZE][];
+	private static final int[] slotKinds = new int[SIZE];
+	private static final int multiplier;
+
+	static {
+		// keyword kinds are numbered in the same order as WORDS; search for the
+		// first multiplier that places every keyword in a distinct slot
+		int m = 1;
+		while (!build(m))
+			m += 2;
+		multiplier = m;
+	}
+
+	private static boolean build(int m) {
+		Arrays.fill(slotWords, null);
+		for (int i = 0; i < WORDS.length; i++) {
+			byte[] w = WORDS[i].getBytes(StandardCharsets.US_ASCII);
+			int slot = hash(ByteBuffer.wrap(w), 0, w.length, m);
+			if (slotWords[slot] != null)
+				return false;
+			slotWords[slot] = w;
+			slotKinds[slot] = Lexer.MOVE + i;
+		}
+		return true;
+	}
+
+	private static int hash(ByteBuffer buf, int off, int len, int m) {
+		int h = len;
+		for (int i = 0; i < len; i++)
+			h = h * m + buf.get(off + i);
+		return (h ^ (h >>> 11)) & (SIZE - 1);
+	}
+
+	/**
+	 * The keyword kind of the identifier buf[off..off+len), or Lexer.IDENT if
+	 * it is not a keyword.
+	 */
+	static int lookup(ByteBuffer buf, int off, int len) {
+		int slot = hash(buf, off, len, multiplier);
+		byte[] w = slotWords[slot];
+		if (w == null || w.length != len)
+			return Lexer.IDENT;
+		for (int i = 0; i < len; i++) {
+			if (w[i] != buf.get(off + i))
+				return Lexer.IDENT;
+		}
+		return slotKinds[slot];
+	}
+}
@@ -0,0 +1,30 @@
+class LoopNode implements StatementNode{
+
+	BlockNode block;
+	final LoopTier tier = new LoopTier(this);
+	private int cost;		//See InstructionMeter
+
+	public LoopNode(BlockNode b){
+		this.block = b;
+	}
+
+	@Override
+	public void execute(Robot robot) {
+		if(cost == 0)
+			cost = InstructionMeter.loopCost(this);
+		while(true){
+			block.execute(robot);
+			robot.charge(cost);
+			LoopTier.CompiledLoop compiled = tier.backEdge(robot);
+			if(compiled != null){
+				compiled.run(robot, robot.context.frame);
+				return;
+			}
+		}
+	}
+
+	public String toString(){
+		return "loop \n" + this.block;
+	}
+
+}
@@ -0,0 +1,110 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tiered execution of one while or loop statement. The interpreter counts the
+ * loop's back edges, and once they pass a threshold the loop is compiled by
+ * {@link ProgramCompiler#compileLoop} on a background thread. The interpreter
+ * carries on meanwhile, and at the first iteration boundary after the compiled
+ * code is ready it hands the rest of the loop over to it. If compiling fails
+ * the loop simply stays interpreted.
+ *
+ * Statements rewrite their own expressions and conditions when they first run
+ * (see NodeSpecializer), which may not have happened yet for every statement
+ * in the loop, e.g. a branch never taken. So before queueing the loop the
+ * robot's thread prepares the whole subtree as those first runs would, and the
+ * compiler only ever sees a tree nothing will rewrite again.
+ *
+ * The counter lives on the tree, so every robot running the same tree
+ * contributes to it. Increments may race and be lost, which only delays
+ * compilation a little.
+ *
+ * Set the robot.tiered system property to false to never compile, and
+ * robot.tier.threshold to change the number of back edges before compiling.
+ */
+class LoopTier {
+
+	/** The code a loop is compiled to: runs the loop from an iteration boundary. */
+	interface CompiledLoop {
+		void run(Robot robot, int[] frame);
+	}
+
+	static final boolean ENABLED = !"false".equals(System.getProperty("robot.tiered"));
+	static final int THRESHOLD = Integer.getInteger("robot.tier.threshold", 1000);
+
+	private static final ExecutorService compiler = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "robot-loop-compiler");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	private final StatementNode loop;
+	private int backEdges = 0;
+	private final AtomicBoolean queued = new AtomicBoolean();
+	private volatile CompiledLoop compiled;
+
+	LoopTier(StatementNode loop) {
+		this.loop = loop;
+	}
+
+	/**
+	 * Called by the loop at the end of each iteration. Returns the compiled
+	 * loop if it is ready and the robot is running a program (so has a
+	 * frame), otherwise null to carry on interpreting.
+	 */
+	CompiledLoop backEdge(Robot robot) {
+		CompiledLoop c = compiled;
+		if (c != null)
+			return robot.context != null ? c : null;
+		if (ENABLED && ++backEdges >= THRESHOLD && queued.compareAndSet(false, true)) {
+			prepare(loop);
+			compiler.execute(new Runnable() {
+				@Override
+				public void run() {
+					compile();
+				}
+			});
+		}
+		return null;
+	}
+
+	/** Prepares every statement in the subtree as its first run would. */
+	private static void prepare(StatementNode s) {
+		if (s instanceof BlockNode) {
+			for (StatementNode t : ((BlockNode) s).statements)
+				prepare(t);
+		} else if (s instanceof LoopNode) {
+			prepare(((LoopNode) s).block);
+		} else if (s instanceof WhileNode) {
+			((WhileNode) s).prepare();
+			prepare(((WhileNode) s).block);
+		} else if (s instanceof IFNode) {
+			IFNode i = (IFNode) s;
+			i.prepare();
+			prepare(i.mainBlock);
+			for (IFNode.Elif e : i.elifs)
+				prepare(e.block);
+			if (i.elseBlock != null)
+				prepare(i.elseBlock);
+		} else if (s instanceof MoveNode) {
+			((MoveNode) s).prepare();
+		} else if (s instanceof WaitNode) {
+			((WaitNode) s).prepare();
+		} else if (s instanceof AssignmentNode) {
+			((AssignmentNode) s).prepare();
+		}
+	}
+
+	private void compile() {
+		try {
+			compiled = ProgramCompiler.compileLoop(loop);
+		} catch (RuntimeException | LinkageError e) {
+			// stay interpreted, queued stays set so it isn't tried again
+		}
+	}
+}
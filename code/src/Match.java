@@ -0,0 +1,112 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A match between two programs run without the GUI. The world is stepped
+ * (see World.startStepped) one tick after another as fast as they can be
+ * run, rather than one tick per WorldComponent animation, and the red robot's
+ * turn is always resolved before the blue one's, so a match with the same
+ * programs and seed always plays out the same way.
+ *
+ * A robot loses when it runs out of fuel, which the GUI only notices when
+ * drawing it: here the match checks after every tick whether either robot's
+ * fuel, once its pending action has happened, is 0 or less. If both run out
+ * on the same tick, or neither has within the tick limit, it is a draw. A
+ * robot whose program throws, e.g. dividing by zero, runs out of fuel at once
+ * (see Robot.fail), and the exception is kept in the result.
+ *
+ * The robots print nothing. Set the robot.match.ticks system property to
+ * change the tick limit.
+ *
+ * To play one match run
+ * <code>java Match red.prog blue.prog [seed|schedule] [record]</code>, with
+ * fuel from the seed or a FuelSchedule file, optionally recording the fuel
+ * placed to replay the match.
+ */
+class Match {
+
+	static final int MAX_TICKS = Integer.getInteger("robot.match.ticks", 10000);
+
+	private final RobotProgramNode red, blue;
+	private final long seed;
+
+	/** Where fuel appears, or null to draw it from the seed */
+	private final FuelSchedule fuel;
+
+	/**
+	 * A match between two programs the RegisterVM can run: trees, or programs
+	 * already lowered to it, which saves lowering them again for every match.
+	 */
+	Match(RobotProgramNode red, RobotProgramNode blue, long seed) {
+		this.red = red;
+		this.blue = blue;
+		this.seed = seed;
+		this.fuel = null;
+	}
+
+	/** A match with fuel appearing as the schedule says. */
+	Match(RobotProgramNode red, RobotProgramNode blue, FuelSchedule fuel) {
+		this.red = red;
+		this.blue = blue;
+		this.seed = 0;
+		this.fuel = fuel;
+	}
+
+	/**
+	 * Plays the match to the end.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if a program can't be stepped
+	 */
+	MatchResult play() {
+		World world = fuel != null ? new World(fuel) : new World(seed);
+		Robot r = world.getRobot(MatchResult.RED), b = world.getRobot(MatchResult.BLUE);
+		r.setQuiet(true);
+		b.setQuiet(true);
+		r.setProgram(red);
+		b.setProgram(blue);
+		world.startStepped();
+		try {
+			int tick = 0;
+			while (true) {
+				boolean redOut = r.fuelAfterTurn() <= 0, blueOut = b.fuelAfterTurn() <= 0;
+				if (redOut || blueOut) {
+					int winner = redOut && blueOut ? MatchResult.DRAW : redOut ? MatchResult.BLUE : MatchResult.RED;
+					return new MatchResult(winner, tick, r.fuelAfterTurn(), b.fuelAfterTurn(), false,
+							world.fuelPlaced(), r.getFailure(), b.getFailure());
+				}
+				if (tick == MAX_TICKS)
+					return new MatchResult(MatchResult.DRAW, tick, r.fuelAfterTurn(), b.fuelAfterTurn(), true,
+							world.fuelPlaced(), r.getFailure(), b.getFailure());
+				world.updateWorld();
+				tick++;
+			}
+		} finally {
+			world.reset();
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: java Match red.prog blue.prog [seed|schedule] [record]");
+			return;
+		}
+		RobotProgramNode red = RegisterVM.compile(Parser.parse(new File(args[0])));
+		RobotProgramNode blue = RegisterVM.compile(Parser.parse(new File(args[1])));
+		Match match;
+		String fuel;
+		if (args.length > 2 && new File(args[2]).isFile()) {
+			match = new Match(red, blue, FuelSchedule.read(new File(args[2])));
+			fuel = "fuel from " + args[2];
+		} else {
+			long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+			match = new Match(red, blue, seed);
+			fuel = "seed " + seed;
+		}
+		long start = System.nanoTime();
+		MatchResult result = match.play();
+		System.out.println(result + " (" + fuel + ", " + (System.nanoTime() - start) / 1000000 + " ms)");
+		if (args.length > 3)
+			result.fuel.write(new File(args[3]));
+	}
+}
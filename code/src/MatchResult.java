@@ -0,0 +1,56 @@
+/**
+ * The outcome of a Match: who won, after how many ticks, and the fuel each
+ * robot was left with (0 or less for a robot that ran out). It also has the
+ * fuel that was placed, to replay the match, and the exception of any program
+ * that failed.
+ */
+class MatchResult {
+
+	static final int DRAW = 0, RED = 1, BLUE = 2;
+
+	/** RED or BLUE, or DRAW if both ran out on the same tick or neither did */
+	final int winner;
+	final int ticks;
+	final int redFuel, blueFuel;
+
+	/** Whether the match was stopped at its tick limit with both robots still going */
+	final boolean timedOut;
+
+	/** The fuel placed during the match */
+	final FuelSchedule fuel;
+
+	/** What each robot's program failed with (see Robot.fail), or null */
+	final RuntimeException redFailure, blueFailure;
+
+	MatchResult(int winner, int ticks, int redFuel, int blueFuel, boolean timedOut, FuelSchedule fuel,
+			RuntimeException redFailure, RuntimeException blueFailure) {
+		this.winner = winner;
+		this.ticks = ticks;
+		this.redFuel = redFuel;
+		this.blueFuel = blueFuel;
+		this.timedOut = timedOut;
+		this.fuel = fuel;
+		this.redFailure = redFailure;
+		this.blueFailure = blueFailure;
+	}
+
+	/** The fuel the robot with the given id (RED or BLUE) was left with. */
+	int fuel(int id) {
+		return id == RED ? redFuel : blueFuel;
+	}
+
+	/** What the program of the robot with the given id failed with, or null. */
+	RuntimeException failure(int id) {
+		return id == RED ? redFailure : blueFailure;
+	}
+
+	public String toString() {
+		String outcome = winner == RED ? "red won" : winner == BLUE ? "blue won" : timedOut ? "no winner" : "draw";
+		String s = outcome + " after " + ticks + " ticks, fuel red " + redFuel + " blue " + blueFuel;
+		if (redFailure != null)
+			s += ", red's program failed: " + redFailure;
+		if (blueFailure != null)
+			s += ", blue's program failed: " + blueFailure;
+		return s;
+	}
+}
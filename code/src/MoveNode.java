@@ -0,0 +1,48 @@
+class MoveNode implements ActionNode{
+
+	ExpressionNode exp;
+	private volatile boolean specialized;		//See prepare
+
+	public MoveNode(){}
+	public MoveNode(ExpressionNode exp){			//Optional Argument
+		this.exp = exp;
+	}
+
+	@Override
+	public void execute(Robot robot) {
+		if(!specialized)
+			prepare();
+
+		if(exp!=null){
+
+			int step = exp.evaluate(robot);
+
+			int i = 0;
+			while( i < step ){
+				robot.move();
+				i++;
+			}
+		}
+		else
+			robot.move();
+
+
+	}
+
+	/** Specialises the argument once, before it first runs, see NodeSpecializer and LoopTier */
+	synchronized void prepare(){
+		if(!specialized){
+			if(exp!=null && NodeSpecializer.ENABLED)
+				exp = NodeSpecializer.expression(exp);
+			specialized = true;
+		}
+	}
+
+	public String toString(){
+		if(exp!=null)
+			return "Move("+this.exp+")";
+		else
+			return "Move;";
+	}
+
+}
@@ -0,0 +1,17 @@
+class MultNode implements OPNode{
+
+	@Override
+	public String getOP() {
+		return "mul";
+	}
+
+	@Override
+	public int evaluate(Robot robot) {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
+	public String toString(){
+		return "mult";
+	}
+}
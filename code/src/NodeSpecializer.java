@@ -0,0 +1,131 @@
+/**
+ * Rewrites the expressions and conditions of a statement into specialised
+ * nodes the first time the statement runs. There is one node for each shape of
+ * operands: a variable and a number (OpSlotConst, CompareSlotConst), two
+ * variables (OpSlotSlot, CompareSlotSlot), which read the frame directly
+ * instead of calling evaluate on their operands, and anything else (OpExpr,
+ * CompareExpr). Each switches on an operator code from this class instead of
+ * testing the class of its operator.
+ *
+ * The specialised expressions are subclasses of OPNodeExpr with the same
+ * fields, so anything that walks the tree (toString, AstCodec, the compilers)
+ * sees no difference. The specialised comparisons keep the node they replaced,
+ * and walkers that may meet a tree that has run take it back with generic. A
+ * tree may be shared by robots running at the same time, so each statement
+ * specialises in a synchronized prepare method and then sets a volatile flag:
+ * only one robot rewrites it, and the others see the rewritten tree.
+ *
+ * Set the robot.specialize system property to false to keep the generic nodes.
+ */
+class NodeSpecializer {
+
+	static final boolean ENABLED = !"false".equals(System.getProperty("robot.specialize"));
+
+	/** Operator codes, for apply and test */
+	static final int ADD = 0, SUB = 1, MUL = 2, DIV = 3, GT = 4, LT = 5, EQ = 6;
+
+	/** The specialised form of the expression, with its operands specialised. */
+	static ExpressionNode expression(ExpressionNode e) {
+		if (e instanceof OPNodeExpr) {
+			OPNodeExpr g = new OPNodeExpr(((OPNodeExpr) e).op, expression(((OPNodeExpr) e).left),
+					expression(((OPNodeExpr) e).right));
+			if (operator(g.op) < 0)
+				return g;
+			return slotConst(g.left, g.right) ? new OpSlotConst(g)
+					: slotSlot(g.left, g.right) ? new OpSlotSlot(g) : new OpExpr(g);
+		}
+		if (e instanceof BarrelLRNode && ((BarrelLRNode) e).exp != null)
+			((BarrelLRNode) e).exp = expression(((BarrelLRNode) e).exp);
+		else if (e instanceof BarrelFBNode && ((BarrelFBNode) e).exp != null)
+			((BarrelFBNode) e).exp = expression(((BarrelFBNode) e).exp);
+		return e; // numbers, variables and sensors are already as simple as they get
+	}
+
+	/** The specialised form of the condition, with its parts specialised. */
+	static ConditionalNode condition(ConditionalNode c) {
+		if (c instanceof AndNode) {
+			((AndNode) c).left = condition(((AndNode) c).left);
+			((AndNode) c).right = condition(((AndNode) c).right);
+		} else if (c instanceof OrNode) {
+			((OrNode) c).left = condition(((OrNode) c).left);
+			((OrNode) c).right = condition(((OrNode) c).right);
+		} else if (c instanceof NotNode) {
+			((NotNode) c).cond = condition(((NotNode) c).cond);
+		} else if (c instanceof GreaterThanNode) {
+			ExpressionNode l = expression(((GreaterThanNode) c).left), r = expression(((GreaterThanNode) c).right);
+			return comparison(new GreaterThanNode(l, r), GT, l, r);
+		} else if (c instanceof LessThanNode) {
+			ExpressionNode l = expression(((LessThanNode) c).left), r = expression(((LessThanNode) c).right);
+			return comparison(new LessThanNode(l, r), LT, l, r);
+		} else if (c instanceof EqualsNode) {
+			ExpressionNode l = expression(((EqualsNode) c).left), r = expression(((EqualsNode) c).right);
+			return comparison(new EqualsNode(l, r), EQ, l, r);
+		}
+		return c;
+	}
+
+	/**
+	 * The generic node a specialised comparison replaced, otherwise the
+	 * condition itself. Walkers of a tree that may have run call this before
+	 * looking at the class of a condition.
+	 */
+	static ConditionalNode generic(ConditionalNode c) {
+		return c instanceof Comparison ? ((Comparison) c).generic : c;
+	}
+
+	/** The operator code of an OPNode, or -1 if it has none. */
+	static int operator(OPNode op) {
+		if (op instanceof AddNode)
+			return ADD;
+		if (op instanceof SubNode)
+			return SUB;
+		if (op instanceof MultNode)
+			return MUL;
+		if (op instanceof DivNode)
+			return DIV;
+		return -1;
+	}
+
+	/** Applies an arithmetic operator, ADD to DIV. */
+	static int apply(int operator, int l, int r) {
+		switch (operator) {
+		case ADD:
+			return l + r;
+		case SUB:
+			return l - r;
+		case MUL:
+			return l * r;
+		default:
+			return l / r;
+		}
+	}
+
+	/** Applies a comparison operator, GT, LT or EQ. */
+	static boolean test(int operator, int l, int r) {
+		switch (operator) {
+		case GT:
+			return l > r;
+		case LT:
+			return l < r;
+		default:
+			return l == r;
+		}
+	}
+
+	private static ConditionalNode comparison(ConditionalNode generic, int operator, ExpressionNode left,
+			ExpressionNode right) {
+		if (slotConst(left, right))
+			return new CompareSlotConst(generic, operator, left, right);
+		if (slotSlot(left, right))
+			return new CompareSlotSlot(generic, operator, left, right);
+		return new CompareExpr(generic, operator, left, right);
+	}
+
+	private static boolean slotConst(ExpressionNode left, ExpressionNode right) {
+		return left instanceof VariableNode && right instanceof NumberNode;
+	}
+
+	private static boolean slotSlot(ExpressionNode left, ExpressionNode right) {
+		return left instanceof VariableNode && right instanceof VariableNode;
+	}
+}
@@ -0,0 +1,22 @@
+class NotNode implements ConditionalNode{
+
+	ConditionalNode cond;
+
+	public NotNode(ConditionalNode cond){
+		this.cond = cond;
+	}
+
+	@Override
+	public boolean evaluate(Robot robot) {
+
+		if(!(cond.evaluate(robot)))
+			return true;
+		else
+			return false;
+
+	}
+
+	public String toString(){
+		return "not( "+cond+")";
+	}
+}
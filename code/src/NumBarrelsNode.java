@@ -0,0 +1,11 @@
+class NumBarrelsNode implements SensorNode{
+
+	@Override
+	public int evaluate(Robot robot) {
+		return robot.context.sensors.read(robot, SensorCache.NUMBARRELS);
+	}
+
+	public String toString(){
+		return "NumBarrels";
+	}
+}
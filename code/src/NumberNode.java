@@ -0,0 +1,21 @@
+class NumberNode implements ExpressionNode{
+
+	int num;
+
+	public NumberNode(int num){
+		this.num = num;
+	}
+
+	public int getNum(){
+		return num;
+	}
+
+	@Override
+	public int evaluate(Robot robot) {
+		return num;
+	}
+
+	public String toString(){
+		return Integer.toString(num);
+	}
+}
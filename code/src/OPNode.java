@@ -0,0 +1,3 @@
+interface OPNode extends ExpressionNode{
+	public String getOP();
+}
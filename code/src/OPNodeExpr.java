@@ -0,0 +1,31 @@
+class OPNodeExpr implements ExpressionNode{
+
+	OPNode op;
+	ExpressionNode left, right;
+
+	public OPNodeExpr(OPNode op, ExpressionNode left, ExpressionNode right){
+		this.op = op;
+		this.left = left;
+		this.right = right;
+	}
+
+	@Override
+	public int evaluate(Robot robot) {
+
+		int l = left.evaluate(robot);
+		int r = right.evaluate(robot);
+
+		int eval = 0;
+		if(op.getClass() == AddNode.class)			eval = l + r;
+		else if(op.getClass() == SubNode.class)  	eval = l - r;
+		else if(op.getClass() == MultNode.class)	eval = l * r;
+		else if(op.getClass() == DivNode.class)		eval = l / r;
+
+		return eval;
+	}
+
+	public String toString(){
+		return op.toString() + "(" + left.toString() + ", " + right.toString() + ")";
+	}
+
+}
@@ -0,0 +1,18 @@
+/** An OPNodeExpr as NodeSpecializer rewrites it, for operands of any shape */
+class OpExpr extends OPNodeExpr{
+
+	private final int operator;
+	private final ExpressionNode l, r;
+
+	public OpExpr(OPNodeExpr e){
+		super(e.op, e.left, e.right);
+		this.operator = NodeSpecializer.operator(e.op);
+		this.l = e.left;
+		this.r = e.right;
+	}
+
+	@Override
+	public int evaluate(Robot robot) {
+		return NodeSpecializer.apply(operator, l.evaluate(robot), r.evaluate(robot));
+	}
+}
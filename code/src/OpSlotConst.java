@@ -0,0 +1,17 @@
+/** An OPNodeExpr as NodeSpecializer rewrites it, for a variable and a number: reads the frame directly */
+class OpSlotConst extends OPNodeExpr{
+
+	private final int operator, slot, k;
+
+	public OpSlotConst(OPNodeExpr e){
+		super(e.op, e.left, e.right);
+		this.operator = NodeSpecializer.operator(e.op);
+		this.slot = ((VariableNode) e.left).slot;
+		this.k = ((NumberNode) e.right).num;
+	}
+
+	@Override
+	public int evaluate(Robot robot) {
+		return NodeSpecializer.apply(operator, robot.context.frame[slot], k);
+	}
+}
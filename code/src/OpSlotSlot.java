@@ -0,0 +1,18 @@
+/** An OPNodeExpr as NodeSpecializer rewrites it, for two variables: reads the frame directly */
+class OpSlotSlot extends OPNodeExpr{
+
+	private final int operator, a, b;
+
+	public OpSlotSlot(OPNodeExpr e){
+		super(e.op, e.left, e.right);
+		this.operator = NodeSpecializer.operator(e.op);
+		this.a = ((VariableNode) e.left).slot;
+		this.b = ((VariableNode) e.right).slot;
+	}
+
+	@Override
+	public int evaluate(Robot robot) {
+		int[] frame = robot.context.frame;
+		return NodeSpecializer.apply(operator, frame[a], frame[b]);
+	}
+}
@@ -0,0 +1,11 @@
+class OppFBNode implements SensorNode{
+
+	@Override
+	public int evaluate(Robot robot) {
+		return robot.context.sensors.read(robot, SensorCache.OPPFB);
+	}
+
+	public String toString(){
+		return "OppFB";
+	}
+}
@@ -0,0 +1,11 @@
+class OppLRNode implements SensorNode{
+
+	@Override
+	public int evaluate(Robot robot) {
+		return robot.context.sensors.read(robot, SensorCache.OPPLR);
+	}
+
+	public String toString(){
+		return "OppLR";
+	}
+}
@@ -0,0 +1,215 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A cache of parsed programs keyed by the SHA-256 hash of the source, so the
+ * same program is only tokenized and parsed once however often it is loaded.
+ *
+ * Recently used programs are kept in memory as {@link ProgramArena}s (least
+ * recently used are evicted first). Given a cache directory, every parsed tree
+ * is also written there as an {@link AstCodec} snapshot named after the hash,
+ * so later runs load it without parsing. Since the key is the content hash, an
+ * edited file simply misses the cache; timestamps are never consulted.
+ *
+ * Every load returns a tree of its own, rebuilt from the arena, so the caller
+ * may change it (optimize or specialize it, or keep run time state on its
+ * nodes) without affecting anyone else loading the same source.
+ */
+class ParseCache {
+
+	private static final int MAGIC = 0x52415354; // "RAST"
+	private static final int VERSION = 2;
+
+	private static ParseCache shared;
+
+	private final File dir;
+	private final Map<String, Cached> memory;
+
+	/**
+	 * @param dir
+	 *            where snapshots are stored, or null to only cache in memory
+	 * @param capacity
+	 *            the number of programs kept in memory
+	 */
+	ParseCache(File dir, final int capacity) {
+		this.dir = dir;
+		this.memory = new LinkedHashMap<String, Cached>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * The cache used by the World. It only caches in memory unless the
+	 * robot.cache.dir system property names a directory for snapshots; the
+	 * number of programs kept in memory can be set with robot.cache.size.
+	 */
+	static synchronized ParseCache shared() {
+		if (shared == null) {
+			String dir = System.getProperty("robot.cache.dir", "");
+			int size = Integer.getInteger("robot.cache.size", 256);
+			shared = new ParseCache(dir.isEmpty() ? null : new File(dir), size);
+		}
+		return shared;
+	}
+
+	/**
+	 * Loads the program in the file, from the cache if possible.
+	 *
+	 * @throws ParserFailureException
+	 *             if the program does not parse
+	 */
+	ProgramNode load(File code) throws IOException {
+		return load(SourceReader.read(code));
+	}
+
+	/**
+	 * Loads the program whose source is between the buffer's position and
+	 * limit, from the cache if possible.
+	 *
+	 * @throws ParserFailureException
+	 *             if the program does not parse
+	 */
+	ProgramNode load(ByteBuffer source) {
+		byte[] hash = hash(source.duplicate());
+		String key = hex(hash);
+
+		Cached cached;
+		synchronized (memory) {
+			cached = memory.get(key);
+		}
+		if (cached != null)
+			return cached.arena.toNode(cached.root);
+
+		ProgramNode prog = readSnapshot(key, hash);
+		if (prog == null) {
+			prog = Parser.parse(source);
+			writeSnapshot(key, hash, prog);
+		}
+
+		cached = new Cached(prog);
+		synchronized (memory) {
+			memory.put(key, cached);
+		}
+		return prog;
+	}
+
+	/** A program kept in memory, in an arena of its own that is never added to again. */
+	private static class Cached {
+		final ProgramArena arena = new ProgramArena(256);
+		final int root;
+
+		Cached(ProgramNode prog) {
+			root = arena.add(prog);
+		}
+	}
+
+	/** Drops all in-memory entries, the snapshots on disk are kept. */
+	void clearMemory() {
+		synchronized (memory) {
+			memory.clear();
+		}
+	}
+
+	/**
+	 * Reads the snapshot for the hash, or returns null if there is none or it
+	 * fails validation (wrong header, hash or checksum, or a malformed tree).
+	 */
+	private ProgramNode readSnapshot(String key, byte[] hash) {
+		if (dir == null)
+			return null;
+		Path path = new File(dir, key + ".ast").toPath();
+		if (!Files.isRegularFile(path))
+			return null;
+		try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				return null;
+			byte[] storedHash = new byte[hash.length];
+			in.readFully(storedHash);
+			if (!Arrays.equals(hash, storedHash))
+				return null;
+			long checksum = in.readLong();
+			byte[] tree = new byte[in.readInt()];
+			in.readFully(tree);
+			if (checksum != crc(tree))
+				return null;
+			return AstCodec.decode(tree);
+		} catch (IOException e) {
+			return null; // treat any unreadable snapshot as a miss
+		}
+	}
+
+	/**
+	 * Writes the snapshot to a temporary file and moves it into place, so
+	 * concurrent readers never see a partial file.
+	 */
+	private void writeSnapshot(String key, byte[] hash, ProgramNode prog) {
+		if (dir == null)
+			return;
+		byte[] tree = AstCodec.encode(prog);
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(tree.length + 64);
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.write(hash);
+			out.writeLong(crc(tree));
+			out.writeInt(tree.length);
+			out.write(tree);
+			out.close();
+
+			Files.createDirectories(dir.toPath());
+			Path tmp = Files.createTempFile(dir.toPath(), key, ".tmp");
+			Files.write(tmp, bytes.toByteArray());
+			Path target = new File(dir, key + ".ast").toPath();
+			try {
+				Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			System.out.println("Could not write parse cache entry: " + e.getMessage());
+		}
+	}
+
+	private static byte[] hash(ByteBuffer source) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(source);
+			return digest.digest();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // every JVM must provide SHA-256
+		}
+	}
+
+	private static long crc(byte[] data) {
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, data.length);
+		return crc.getValue();
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes)
+			sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		return sb.toString();
+	}
+}
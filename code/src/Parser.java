@@ -1,59 +1,168 @@
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
 import java.util.*;
-import java.util.regex.*;
 import javax.swing.JFileChooser;
 
-import sun.util.locale.ParseStatus;
-
 /**
  * The parser and interpreter. The top level parse function, a main method for
  * testing, and several utility methods are provided. You need to implement
  * parseProgram and all the rest of the parser.
+ *
+ * The source is tokenized once by the {@link Lexer}, and the parse methods
+ * below consume the resulting {@link TokenStream} by token kind. Each method
+ * picks its production from the LL(1) table in {@link Grammar}.
+ *
+ * <pre>
+ * PROG  ::= STMT+
+ * STMT  ::= ACT ; | LOOP | IF | WHILE | ASSGN ;
+ * ACT   ::= move [ ( EXP ) ] | turnL | turnR | turnAround | shieldOn | shieldOff | takeFuel | wait [ ( EXP ) ]
+ * LOOP  ::= loop BLOCK
+ * IF    ::= if ( COND ) BLOCK [ elif ( COND ) BLOCK ]* [ else BLOCK ]
+ * WHILE ::= while ( COND ) BLOCK
+ * ASSGN ::= VAR = EXP
+ * BLOCK ::= { STMT+ }
+ * COND  ::= and ( COND, COND ) | or ( COND, COND ) | not ( COND ) | lt ( EXP, EXP ) | gt ( EXP, EXP ) | eq ( EXP, EXP )
+ * EXP   ::= NUM | SEN | OP ( EXP, EXP ) | VAR
+ * SEN   ::= fuelLeft | oppLR | oppFB | numBarrels | barrelLR [ ( EXP ) ] | barrelFB [ ( EXP ) ] | wallDist
+ * OP    ::= add | sub | mul | div
+ * VAR   ::= \$[A-Za-z][A-Za-z0-9]*
+ * NUM   ::= -?[0-9]+
+ * </pre>
  */
 public class Parser {
 
-	//Used for nested loop alignment
-	static int depthCounter = 0;
-	//A map of all variables
-	static Map<VariableNode, Integer> variablesMap;
+	/** The tokens of the program being parsed by this parser */
+	private final TokenStream s;
+
+	/** Whether to carry on after a syntax error, see {@link #parseRecovering} */
+	private final boolean recover;
+
+	/** The syntax errors found so far */
+	private final List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+
+	/** The slots of the variables used so far */
+	private final VariableTable variables = new VariableTable();
 
 	/**
-	 * Top level parse method, called by the World
+	 * Creates a parser for one program. A Parser holds no shared state, so any
+	 * number of them may be used concurrently from different threads.
+	 *
+	 * @param recover
+	 *            if false, parsing stops at the first syntax error
 	 */
-	static RobotProgramNode parseFile(File code) {
-		Scanner scan = null;
-		try {
-			scan = new Scanner(code);
+	Parser(TokenStream tokens, boolean recover) {
+		this.s = tokens;
+		this.recover = recover;
+	}
+
+	/**
+	 * Parses the given source, throwing a ParserFailureException if it is not a
+	 * valid program.
+	 */
+	static ProgramNode parse(String src) {
+		return parse(Lexer.lex(src));
+	}
+
+	/**
+	 * Parses the source between the buffer's position and limit, throwing a
+	 * ParserFailureException if it is not a valid program.
+	 */
+	static ProgramNode parse(ByteBuffer src) {
+		return parse(Lexer.lex(src));
+	}
+
+	private static ProgramNode parse(TokenStream tokens) {
+		Parser parser = new Parser(tokens, false);
+		ProgramNode prog = parser.parseProgram();
+		if (!parser.diagnostics.isEmpty())
+			throw new ParserFailureException(parser.diagnostics.get(0).toString());
+		return prog;
+	}
+
+	/**
+	 * Parses the given source, reporting every syntax error instead of stopping
+	 * at the first. After an error the parser skips to the end of the broken
+	 * statement (the next ';', or the '}' closing it) and carries on, so the
+	 * program in the result holds every statement that did parse. No exceptions
+	 * are thrown, however many errors there are.
+	 */
+	static ParseResult parseRecovering(String src) {
+		return parseRecovering(ByteBuffer.wrap(src.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * As {@link #parseRecovering(String)}, for the source between the buffer's
+	 * position and limit. The buffer may be reused once this returns.
+	 */
+	static ParseResult parseRecovering(ByteBuffer src) {
+		TokenStream tokens = Lexer.lex(src);
+		Parser parser = new Parser(tokens, true);
+		ProgramNode prog = parser.parseProgram();
+		if (!parser.diagnostics.isEmpty())
+			tokens.detachSource(); // the diagnostics still refer to the text
+		return new ParseResult(prog, parser.diagnostics);
+	}
+
+	/** The outcome of {@link Parser#parseRecovering}. */
+	static class ParseResult {
+		/** Every statement that parsed, never null */
+		final ProgramNode program;
+		/** The syntax errors in source order, empty if the program is valid */
+		final List<Diagnostic> diagnostics;
 
-			//Initialize Variables Map
-			variablesMap = new HashMap<VariableNode, Integer>();
+		ParseResult(ProgramNode program, List<Diagnostic> diagnostics) {
+			this.program = program;
+			this.diagnostics = diagnostics;
+		}
 
-			// the only time tokens can be next to each other is
-			// when one of them is one of (){},;
-			scan.useDelimiter("\\s+|(?=[{}(),;])|(?<=[{}(),;])");
+		boolean succeeded() {
+			return diagnostics.isEmpty();
+		}
+	}
 
-			RobotProgramNode n = parseProgram(scan); // You need to implement this!!!
+	/**
+	 * Reads and parses the given file, throwing a ParserFailureException if it
+	 * is not a valid program.
+	 */
+	static ProgramNode parse(File code) throws IOException {
+		return parse(SourceReader.read(code));
+	}
 
-			scan.close();
-			return n;
-		} catch (FileNotFoundException e) {
+	/**
+	 * Top level parse method, called by the World. Goes through the shared
+	 * {@link ParseCache}, so reloading an unchanged program does not parse it
+	 * again.
+	 */
+	static RobotProgramNode parseFile(File code) {
+		try {
+			return ParseCache.shared().load(code);
+		} catch (NoSuchFileException e) {
 			System.out.println("Robot program source file not found");
+		} catch (IOException e) {
+			System.out.println("Robot program source file could not be read");
 		} catch (ParserFailureException e) {
 			System.out.println("Parser error:");
 			System.out.println(e.getMessage());
-			scan.close();
 		}
 		return null;
 	}
 
-	/** For testing the parser without requiring the world */
+	/**
+	 * For testing the parser without requiring the world. Any directory or
+	 * {@link ProgramArchive} given as an argument has all of its programs parsed
+	 * in parallel, see {@link BatchParser}.
+	 */
 
 	public static void main(String[] args) {
 		if (args.length > 0) {
 			for (String arg : args) {
 				File f = new File(arg);
-				if (f.exists()) {
+				if (f.isDirectory() || f.getName().endsWith(".rpak")) {
+					BatchParser.run(f);
+				} else if (f.exists()) {
 					System.out.println("Parsing '" + f + "'");
 					RobotProgramNode prog = parseFile(f);
 					System.out.println("Parsing completed ");
@@ -84,29 +193,25 @@ public class Parser {
 		System.out.println("Done");
 	}
 
-	// Useful Patterns
-
-	static Pattern NUMPAT = Pattern.compile("-?\\d+"); // ("-?(0|[1-9][0-9]*)");
-	static Pattern OPENPAREN = Pattern.compile("\\(");
-	static Pattern CLOSEPAREN = Pattern.compile("\\)");
-	static Pattern OPENBRACE = Pattern.compile("\\{");
-	static Pattern CLOSEBRACE = Pattern.compile("\\}");
-	static Pattern ACTION = Pattern.compile("move|turnL|turnR|turnAround|shieldOn|shieldOff|takeFuel|wait");
-	static Pattern SENSOR = Pattern.compile("fuelLeft|oppLR|oppFB|numBarrels|barrelLR|barrelFB|wallDist");
-	static Pattern OPERATORS = Pattern.compile("add|sub|mul|div");
-	static Pattern VARIABLES = Pattern.compile("\\$[A-Za-z][A-Za-z0-9]*");
-
 	/**
 	 * PROG ::= STMT+
 	 */
-	static RobotProgramNode parseProgram(Scanner s) {
+	ProgramNode parseProgram() {
 		// THE PARSER GOES HERE
 
 		ProgramNode main = new ProgramNode();
 
-		while(s.hasNext())
-			main.getStatements().add(parseStatementNode(s));
+		while(s.hasNext()){
+			StatementNode stmt = parseStatementNode();
+			if(stmt != null)
+				main.getStatements().add(stmt);
+			else if(!recover)
+				break;
+			else
+				synchronize(false);
+		}
 
+		main.setVariables(variables.names());
 		return main;
 
 	}
@@ -116,218 +221,210 @@ public class Parser {
 	/**
 	 * STMT ::= ACT ; | LOOP | IF | WHILE | ASSGN ;
 	 * */
-	static StatementNode parseStatementNode(Scanner s){
-
-		StatementNode stmt = null;
+	StatementNode parseStatementNode(){
 
-		if(s.hasNext(ACTION))				stmt = parseAction(s);
-		else if(checkFor("loop", s)) 		stmt = parseLoop(s);
-		else if(checkFor("while", s))		stmt = parseWhile(s);
-		else if(checkFor("if", s))			stmt = parseIf(s);
-		else if(s.hasNext(VARIABLES))		stmt = parseAssignmentNode(s);
-		else{
-			fail("Expecting ACT|LOOP|WHILE|IF|ASSGN ;", s);
+		switch(Grammar.predict(Grammar.STMT, s.kind())){
+		case Grammar.STMT_ACT:		return parseAction();
+		case Grammar.STMT_LOOP:		s.advance(); return parseLoop();
+		case Grammar.STMT_WHILE:	s.advance(); return parseWhile();
+		case Grammar.STMT_IF:		s.advance(); return parseIf();
+		case Grammar.STMT_ASSGN:	return parseAssignmentNode();
 		}
-
-		return stmt;
+		return error("ACT|LOOP|WHILE|IF|ASSGN ;");
 	}
 
 	/**
 	 * ASSGN ::= VAR = EXP
 	 * */
-	static AssignmentNode parseAssignmentNode(Scanner s){
+	AssignmentNode parseAssignmentNode(){
 
-		VariableNode var = parseVar(s);
-		require("=", "Expecting '='", s);
-		ExpressionNode exp = parseEXP(s);
-		require(";", "Expecting ';' ", s);
+		VariableNode var = parseVar();
+		if(var == null || !require(Lexer.ASSIGN, "'='"))
+			return null;
+		ExpressionNode exp = parseEXP();
+		if(exp == null || !requireSemicolon())
+			return null;
 
 		return new AssignmentNode(var, exp);
 	}
 
-	static VariableNode parseVar(Scanner s){
-		return new VariableNode(require(VARIABLES, "Expecting \\$[A-Za-z][A-Za-z0-9]*", s));
+	VariableNode parseVar(){
+		if(s.kind() != Lexer.VAR)
+			return error("\\$[A-Za-z][A-Za-z0-9]*");
+		VariableNode var = variables.variable(s.text());
+		s.advance();
+		return var;
 	}
 
 	/**
-	 * ACT ::= move|turnL|turnR|turnAround|shieldOn|shieldOff|takeFuel|wait
+	 * ACT ::= move [ ( EXP ) ] | turnL | turnR | turnAround | shieldOn | shieldOff | takeFuel | wait [ ( EXP ) ]
 	 * */
-	static ActionNode parseAction(Scanner s){
+	ActionNode parseAction(){
 
 		ActionNode act = null;
-
-		if(checkFor("move", s)){
-
-			if(checkFor(OPENPAREN, s)){
-				act = new MoveNode(parseEXP(s));
-				require(CLOSEPAREN, "Expecting ')' ",s);
+		int production = Grammar.predict(Grammar.ACT, s.kind());
+		s.advance();
+
+		switch(production){
+		case Grammar.ACT_MOVE:
+		case Grammar.ACT_WAIT: {
+			ExpressionNode arg = null;
+			if(checkFor(Lexer.LPAREN)){
+				arg = parseEXP();
+				if(arg == null || !require(Lexer.RPAREN, "')'"))
+					return null;
 			}
-			else
-				act = new MoveNode();
-
+			act = production == Grammar.ACT_MOVE ? new MoveNode(arg) : new WaitNode(arg);
+			break;
 		}
-		else if(checkFor("turnL", s))			act = new TurnLNode();
-		else if(checkFor("turnR", s))			act = new TurnRNode();
-		else if(checkFor("turnAround", s))		act = new TurnAroundNode();
-		else if(checkFor("shieldOn", s))		act = new ShieldOnNode();
-		else if(checkFor("shieldOff", s))		act = new ShielfOffNode();
-		else if(checkFor("takeFuel", s))		act = new TakeFuelNode();
-		else if(checkFor("wait", s)){
-
-			if(checkFor(OPENPAREN, s)){
-				act = new WaitNode(parseEXP(s));
-				require(CLOSEPAREN, "Expecting ')' ",s);
-			}
-			else
-				act = new WaitNode();
+		case Grammar.ACT_TURNL:			act = new TurnLNode();			break;
+		case Grammar.ACT_TURNR:			act = new TurnRNode();			break;
+		case Grammar.ACT_TURNAROUND:	act = new TurnAroundNode();		break;
+		case Grammar.ACT_SHIELDON:		act = new ShieldOnNode();		break;
+		case Grammar.ACT_SHIELDOFF:		act = new ShielfOffNode();		break;
+		case Grammar.ACT_TAKEFUEL:		act = new TakeFuelNode();		break;
 		}
 
-
-		require(";", "Expecting ';' ", s);
-
-		return act;
+		return requireSemicolon() ? act : null;
 	}
 
 	/**
 	 * LOOP ::= loop BLOCK
 	 * */
-	static LoopNode parseLoop(Scanner s){
-		return new LoopNode(parseBlock(s));
+	LoopNode parseLoop(){
+		BlockNode block = parseBlock();
+		return block == null ? null : new LoopNode(block);
 	}
 
 	/**
-	 * IF ::= if ( COND ) BLOCK [ else BLOCK ]
+	 * IF ::= if ( COND ) BLOCK [ elif ( COND ) BLOCK ]* [ else BLOCK ]
 	 * */
-	static IFNode parseIf(Scanner s){
-
+	IFNode parseIf(){
 
-		require(OPENPAREN, "Expecting '('", s);
-		ConditionalNode condition = parseCondition(s);
-		require(CLOSEPAREN, "Expecting ')'", s);
-		BlockNode block = parseBlock(s);
+		ConditionalNode condition = parseParenCondition();
+		BlockNode block = condition == null ? null : parseBlock();
+		if(block == null)
+			return null;
 
 		IFNode iN = new IFNode(condition, block);
 
 		//Add elif blocks to list of elif's to process
-		while(checkFor("elif", s)){
-			require(OPENPAREN, "Expecting '('", s);
-			ConditionalNode c = parseCondition(s);
-			require(CLOSEPAREN, "Expecting ')'", s);
-			BlockNode b = parseBlock(s);
-			iN.elifBlocks.put(c, b);
+		while(checkFor(Lexer.ELIF)){
+			ConditionalNode c = parseParenCondition();
+			BlockNode b = c == null ? null : parseBlock();
+			if(b == null)
+				return null;
+			iN.addElif(c, b);
+		}
+		if(checkFor(Lexer.ELSE)){
+			BlockNode b = parseBlock();
+			if(b == null)
+				return null;
+			iN.setElseBlock(b);
 		}
-		if(checkFor("else", s))
-			iN.setElseBlock(parseBlock(s));
 
 		return iN;
 	}
 
 	/**
-	 * WHILE ::= while (COND) BLOCK
+	 * WHILE ::= while ( COND ) BLOCK
 	 * */
-	static WhileNode parseWhile(Scanner s){
+	WhileNode parseWhile(){
+
+		ConditionalNode condition = parseParenCondition();
+		BlockNode block = condition == null ? null : parseBlock();
+		return block == null ? null : new WhileNode(condition, block);
+	}
 
-		require(OPENPAREN, "Expecting '(' ", s);
-		ConditionalNode condition = parseCondition(s);
-		require(CLOSEPAREN, "Expecting ')'", s);
-		BlockNode block = parseBlock(s);
+	/**
+	 * ( COND )
+	 * */
+	ConditionalNode parseParenCondition(){
 
-		return new WhileNode(condition, block);
+		if(!require(Lexer.LPAREN, "'('"))
+			return null;
+		ConditionalNode condition = parseCondition();
+		if(condition == null || !require(Lexer.RPAREN, "')'"))
+			return null;
+		return condition;
 	}
 
 	/**
 	 * COND ::= and ( COND, COND ) | or ( COND, COND ) | not ( COND ) | lt ( EXP, EXP )  |
 	  gt ( EXP, EXP )  | eq ( EXP, EXP )
 	 * */
-	static ConditionalNode parseCondition(Scanner s){
+	ConditionalNode parseCondition(){
+
+		int production = Grammar.predict(Grammar.COND, s.kind());
+		if(production == Grammar.NONE)
+			return error("a COND ::= and|or|not|gt|lt|eq");
+		s.advance();
+		if(!require(Lexer.LPAREN, "'('"))
+			return null;
 
 		ConditionalNode condition = null;
 
-		if(checkFor("and", s)){
-			//NEED CHECKS:
-			require(OPENPAREN, "Expecting '('", s);
-			ConditionalNode c1 = parseCondition(s);
-			require(",", "Expecting ','", s);
-			ConditionalNode c2 = parseCondition(s);
-			require(CLOSEPAREN, "Expecting ')'", s);
-			condition = new AndNode(c1,c2);
-		}
-		else if(checkFor("or", s)){
-			require(OPENPAREN, "Expecting '('", s);
-			ConditionalNode c1 = parseCondition(s);
-			require(",", "Expecting ','", s);
-			ConditionalNode c2 = parseCondition(s);
-			require(CLOSEPAREN, "Expecting ')' ", s);
-			condition = new OrNode(c1, c2);
-		}
-		else if(checkFor("not", s)){
-			require(OPENPAREN, "Expecting '('", s);
-			ConditionalNode c = parseCondition(s);
-			require(CLOSEPAREN, "Expecting ')' ", s);
+		switch(production){
+		case Grammar.COND_AND:
+		case Grammar.COND_OR: {
+			ConditionalNode c1 = parseCondition();
+			if(c1 == null || !require(Lexer.COMMA, "','"))
+				return null;
+			ConditionalNode c2 = parseCondition();
+			if(c2 == null)
+				return null;
+			condition = production == Grammar.COND_AND ? new AndNode(c1, c2) : new OrNode(c1, c2);
+			break;
+		}
+		case Grammar.COND_NOT: {
+			ConditionalNode c = parseCondition();
+			if(c == null)
+				return null;
 			condition = new NotNode(c);
+			break;
 		}
-		else if(checkFor("gt", s)){
-			require(OPENPAREN, "Expecting '('", s);
-			ExpressionNode e1 = parseEXP(s);
-			require(",", "Expecting ','", s);
-			ExpressionNode e2 = parseEXP(s);
-			require(CLOSEPAREN, "Expecting ')' ", s);
-			condition = new GreaterThanNode(e1, e2);
-		}
-		else if(checkFor("lt", s)){
-			require(OPENPAREN, "Expecting '('", s);
-			ExpressionNode e1 = parseEXP(s);
-			require(",", "Expecting ','", s);
-			ExpressionNode e2 = parseEXP(s);
-			require(CLOSEPAREN, "Expecting ')' ", s);
-			condition = new LessThanNode(e1, e2);
+		default: {
+			ExpressionNode e1 = parseEXP();
+			if(e1 == null || !require(Lexer.COMMA, "','"))
+				return null;
+			ExpressionNode e2 = parseEXP();
+			if(e2 == null)
+				return null;
+			if(production == Grammar.COND_GT)			condition = new GreaterThanNode(e1, e2);
+			else if(production == Grammar.COND_LT)		condition = new LessThanNode(e1, e2);
+			else										condition = new EqualsNode(e1, e2);
 		}
-		else if(checkFor("eq", s)){
-			require(OPENPAREN, "Expecting '('", s);
-			ExpressionNode e1 = parseEXP(s);
-			require(",", "Expecting ','", s);
-			ExpressionNode e2 = parseEXP(s);
-			require(CLOSEPAREN, "Expecting ')' ", s);
-			condition = new EqualsNode(e1, e2);
 		}
-		else{
-			fail("Expecting a COND ::= and|or|not|gt|lt|eq", s);
-		}
-
 
-
-		return condition;
+		return require(Lexer.RPAREN, "')'") ? condition : null;
 	}
 
 	/**
 	 * SEN ::= fuelLeft|oppLR|oppFB|numBarrels|barrelLR [( EXP )] | barrelFB [ ( EXP ) ]|wallDist
 	 * */
-	static SensorNode parseSensor(Scanner s){
+	SensorNode parseSensor(){
 
 		SensorNode sensor = null;
-
-		if(checkFor("fuelLeft", s))					sensor = new FuelLeftNode();
-		else if(checkFor("oppLR", s))				sensor = new OppLRNode();
-		else if(checkFor("oppFB", s))				sensor = new OppFBNode();
-		else if(checkFor("numBarrels", s))			sensor = new NumBarrelsNode();
-		else if(checkFor("barrelFB", s)){
-
-			if(checkFor(OPENPAREN, s)){
-				sensor = new BarrelFBNode(parseEXP(s));
-				require(CLOSEPAREN, "Expecting ')' ", s);
-			}else
-				sensor = new BarrelFBNode();
+		int production = Grammar.predict(Grammar.SEN, s.kind());
+		s.advance();
+
+		switch(production){
+		case Grammar.SEN_FUELLEFT:		sensor = new FuelLeftNode();		break;
+		case Grammar.SEN_OPPLR:			sensor = new OppLRNode();			break;
+		case Grammar.SEN_OPPFB:			sensor = new OppFBNode();			break;
+		case Grammar.SEN_NUMBARRELS:	sensor = new NumBarrelsNode();		break;
+		case Grammar.SEN_WALLDIST:		sensor = new WallDistNode();		break;
+		case Grammar.SEN_BARRELFB:
+		case Grammar.SEN_BARRELLR: {
+			ExpressionNode arg = null;
+			if(checkFor(Lexer.LPAREN)){
+				arg = parseEXP();
+				if(arg == null || !require(Lexer.RPAREN, "')'"))
+					return null;
+			}
+			sensor = production == Grammar.SEN_BARRELFB ? new BarrelFBNode(arg) : new BarrelLRNode(arg);
 		}
-		else if(checkFor("barrelLR", s)){
-
-			if(checkFor(OPENPAREN, s)){
-				sensor = new BarrelLRNode(parseEXP(s));
-				require(CLOSEPAREN, "Expecting ')' ", s);
-			}else
-				sensor = new BarrelLRNode();
 		}
-		else if(checkFor("wallDist", s))			sensor = new WallDistNode();
-
 
 		return sensor;
 	}
@@ -335,9 +432,12 @@ public class Parser {
 	/**
 	 * NUM ::= "-?[0-9]+"
 	 * */
-	static NumberNode parseNumber(Scanner s){
+	NumberNode parseNumber(){
 
-		NumberNode numberNode = new NumberNode(requireInt(NUMPAT, "Expecting [0-9]", s));
+		if(s.kind() != Lexer.NUM)
+			return error("[0-9]");
+		NumberNode numberNode = new NumberNode(s.value());
+		s.advance();
 
 		return numberNode;
 	}
@@ -345,14 +445,18 @@ public class Parser {
 	/**
 	 * OP ::= add | sub | mul | div
 	 */
-	static OPNode parseOP(Scanner s){
+	OPNode parseOP(){
 
 		OPNode op = null;
+		int production = Grammar.predict(Grammar.OP, s.kind());
+		s.advance();
 
-		if(checkFor("add", s))				op = new AddNode();
-		else if(checkFor("sub", s))			op = new SubNode();
-		else if(checkFor("mul", s))			op = new MultNode();
-		else if(checkFor("div", s))			op = new DivNode();
+		switch(production){
+		case Grammar.OP_ADD:	op = new AddNode();		break;
+		case Grammar.OP_SUB:	op = new SubNode();		break;
+		case Grammar.OP_MUL:	op = new MultNode();	break;
+		case Grammar.OP_DIV:	op = new DivNode();		break;
+		}
 
 		return op;
 	}
@@ -360,1166 +464,256 @@ public class Parser {
 	/**
 	 * EXP   ::= NUM | SEN | OP ( EXP, EXP ) | VAR
 	 * */
-	static ExpressionNode parseEXP(Scanner s){
-
-		ExpressionNode exp = null;
-
-		if(s.hasNext(SENSOR))				exp = parseSensor(s);
-		else if(s.hasNext(NUMPAT))			exp = parseNumber(s);
-
-		else if(s.hasNext(OPERATORS)){
-
-			OPNode op = parseOP(s);
-			require(OPENPAREN, "Expecting '('", s);
-			ExpressionNode e1 = parseEXP(s);
-			require(",", "Expecting ',' ", s);
-			ExpressionNode e2 = parseEXP(s);
-			exp = new OPNodeExpr(op, e1, e2);
-			require(CLOSEPAREN, "Expecting ')'", s);
+	ExpressionNode parseEXP(){
 
+		switch(Grammar.predict(Grammar.EXP, s.kind())){
+		case Grammar.EXP_SEN:	return parseSensor();
+		case Grammar.EXP_NUM:	return parseNumber();
+		case Grammar.EXP_VAR:	return parseVar();
+		case Grammar.EXP_OP: {
+			OPNode op = parseOP();
+			if(!require(Lexer.LPAREN, "'('"))
+				return null;
+			ExpressionNode e1 = parseEXP();
+			if(e1 == null || !require(Lexer.COMMA, "','"))
+				return null;
+			ExpressionNode e2 = parseEXP();
+			if(e2 == null || !require(Lexer.RPAREN, "')'"))
+				return null;
+			return new OPNodeExpr(op, e1, e2);
 		}
-		else if(s.hasNext(VARIABLES))		exp = parseVar(s);
-		else
-			fail("Expecting SEN|NUM|VAR|OPEXP", s);
-
-		return exp;
+		}
+		return error("SEN|NUM|VAR|OPEXP");
 	}
 
 
 	/**
 	 * BLOCK :: = { STMT+ }
 	 * */
-	static BlockNode parseBlock(Scanner s){
+	BlockNode parseBlock(){
 
 		BlockNode block = new BlockNode();
 
+		if(!require(Lexer.LBRACE, "'{'"))
+			return null;
+		int errors = diagnostics.size();
+		while(s.kind() != Lexer.RBRACE && s.hasNext()){
+			StatementNode stmt = parseStatementNode();
+			if(stmt != null)
+				block.getStatements().add(stmt);
+			else if(!recover)
+				return null;
+			else
+				synchronize(true);
+		}
 
-		require(OPENBRACE, "Expecting '{'", s);
-		while(!s.hasNext(CLOSEBRACE) && s.hasNextLine())
-			block.getStatements().add(parseStatementNode(s));
-
-		if(block.getStatements().size() == 0)
-			fail("Empty BLOCK - Requires 1 or more Statements", s);
-
-		require(CLOSEBRACE, "Expecting '}' ", s);
-
+		// a block emptied by errors in its statements has already been reported
+		if(block.getStatements().size() == 0 && diagnostics.size() == errors){
+			error("Empty BLOCK - Requires 1 or more Statements", "STMT");
+			if(!recover)
+				return null;
+		}
 
-		return block;
+		return require(Lexer.RBRACE, "'}'") ? block : null;
 	}
 
 
-
 	/**
-	 * Report a failure in the parser.
+	 * Records a syntax error at the next token, and returns null so that the
+	 * caller can give up on the construct it was parsing.
 	 */
-	static void fail(String message, Scanner s) {
-		String msg = message + "\n   @ ...";
-		for (int i = 0; i < 5 && s.hasNext(); i++) {
-			msg += " " + s.next();
-		}
-		throw new ParserFailureException(msg + "...");
+	<T> T error(String expected) {
+		return error("Expecting " + expected, expected);
 	}
 
-	/**
-	 * Requires that the next token matches a pattern if it matches, it consumes
-	 * and returns the token, if not, it throws an exception with an error
-	 * message
-	 */
-	static String require(String p, String message, Scanner s) {
-		if (s.hasNext(p)) {
-			return s.next();
-		}
-		fail(message, s);
+	<T> T error(String message, String expected) {
+		diagnostics.add(new Diagnostic(message, expected, s));
 		return null;
 	}
 
-	static String require(Pattern p, String message, Scanner s) {
-		if (s.hasNext(p)) {
-			return s.next();
+	/**
+	 * Skips the rest of a statement that could not be parsed: up to and
+	 * including the next ';' or the '}' that closes a compound statement,
+	 * ignoring anything inside nested braces. When inside a block, the '}'
+	 * closing that block is left for the block to consume. Always consumes at
+	 * least one token if it can, so the parser keeps making progress.
+	 */
+	void synchronize(boolean inBlock) {
+		int start = s.pos;
+		int depth = 0;
+		while(s.hasNext()){
+			int kind = s.kind();
+			if(kind == Lexer.SEMI && depth == 0){
+				s.advance();
+				return;
+			}
+			if(kind == Lexer.LBRACE)
+				depth++;
+			else if(kind == Lexer.RBRACE){
+				if(depth == 0 && inBlock && s.pos > start)
+					return;
+				if(depth > 0)
+					depth--;
+				if(depth == 0){
+					s.advance();
+					return;
+				}
+			}
+			s.advance();
 		}
-		fail(message, s);
-		return null;
 	}
 
 	/**
-	 * Requires that the next token matches a pattern (which should only match a
-	 * number) if it matches, it consumes and returns the token as an integer if
-	 * not, it throws an exception with an error message
+	 * Requires that the next token is of the given kind. If it is, it consumes
+	 * the token and returns true, if not, it records an error and returns false
 	 */
-	static int requireInt(String p, String message, Scanner s) {
-		if (s.hasNext(p) && s.hasNextInt()) {
-			return s.nextInt();
+	boolean require(int kind, String expected) {
+		if (s.kind() == kind) {
+			s.advance();
+			return true;
 		}
-		fail(message, s);
-		return -1;
+		error(expected);
+		return false;
 	}
 
-	static int requireInt(Pattern p, String message, Scanner s) {
-		if (s.hasNext(p) && s.hasNextInt()) {
-			return s.nextInt();
-		}
-		fail(message, s);
-		return -1;
+	/**
+	 * Requires the ';' ending a statement. When recovering, a missing ';' in
+	 * front of something that can follow a statement is reported but treated as
+	 * present, so the statement itself is kept.
+	 */
+	boolean requireSemicolon() {
+		if (require(Lexer.SEMI, "';'"))
+			return true;
+		return recover && (Grammar.predict(Grammar.STMT, s.kind()) != Grammar.NONE || s.kind() == Lexer.RBRACE
+				|| !s.hasNext());
 	}
 
 	/**
-	 * Checks whether the next tokenthis.node = statementNode in the scanner matches the specified
-	 * pattern, if so, consumes the token and return true. Otherwise returns
-	 * false without consuming anything.
+	 * Checks whether the next token is of the given kind, if so, consumes the
+	 * token and return true. Otherwise returns false without consuming
+	 * anything.
 	 */
-	static boolean checkFor(String p, Scanner s) {
-		if (s.hasNext(p)) {
-			s.next();
+	boolean checkFor(int kind) {
+		if (s.kind() == kind) {
+			s.advance();
 			return true;
 		} else {
 			return false;
 		}
 	}
 
-	static boolean checkFor(Pattern p, Scanner s) {
-		if (s.hasNext(p)) {
-			s.next();
-			return true;
-		} else {
-			return false;
-		}
+	/**
+	 * Indents every line of a nested node's text by one tab, used by toString
+	 * for nested loop alignment.
+	 */
+	static String indent(String text) {
+		return "\t" + text.replace("\n", "\n\t");
 	}
 
 }
 
 // You could add the node classes here, as long as they are not declared public (or private)
+// The node classes the parser builds are in files of their own, e.g. MoveNode.java
 
+class BoolNode implements ConditionalNode{
 
-//==================================================================//
-//============================ACTION===============================//
-//=================================================================//
-class MoveNode implements ActionNode{
-
-	ExpressionNode exp;
+	String cond;
 
-	public MoveNode(){}
-	public MoveNode(ExpressionNode exp){			//Optional Argument
-		this.exp = exp;
+	public BoolNode(String cond){
+		this.cond = cond;
 	}
 
-	@Override
-	public void execute(Robot robot) {
-
-		if(exp!=null){
-
-			int step = exp.evaluate(robot);
-			for(Map.Entry<VariableNode, Integer> e : Parser.variablesMap.entrySet()){
-				if(e.getKey().value.equals(exp.toString()))
-					step = e.getValue();
-			}
-
-			int i = 0;
-			while( i < step ){
-				robot.move();
-				i++;
-			}
-		}
-		else
-			robot.move();
-
-
-	}
+	public boolean evaluate(Robot robot){
 
-	public String toString(){
-		if(exp!=null)
-			return "Move("+this.exp+")";
+		if(cond.equals("true"))
+			return true;
 		else
-			return "Move;";
+			return false;
 	}
-
 }
 
-class TurnLNode implements ActionNode{
-
-	@Override
-	public void execute(Robot robot) {
-		robot.turnLeft();
-	}
-
-	public String toString(){
-		return "TurnL;";
-	}
-
-
-}
+interface CompNode{}
+class LTCompNode implements CompNode{}
+class LTEQCompNode implements CompNode{}
+class GTCompNode implements CompNode{}
+class GTEQCompNode implements CompNode{}
+class EQCompNode implements CompNode{}
+class NEQCompNode implements CompNode{}
 
-class TurnRNode implements ActionNode{
+interface LogicNode{}
+class ANDLogicNode implements LogicNode{}
+class ORLogicNode implements LogicNode{}
+class NOTLogicNode implements LogicNode{}
 
+class AddSymbolNode implements OPNode{
 
 	@Override
-	public void execute(Robot robot) {
-		robot.turnRight();
-	}
-
-	public String toString(){
-		return "TurnR;";
+	public int evaluate(Robot robot) {
+		// TODO Auto-generated method stub
+		return 0;
 	}
 
-}
-class TakeFuelNode implements ActionNode{
-
 	@Override
-	public void execute(Robot robot) {
-		robot.takeFuel();
+	public String getOP() {
+		// TODO Auto-generated method stub
+		return null;
 	}
 
 	public String toString(){
-		return "TakeFuel;";
+		return "+";
 	}
-
 }
-class WaitNode implements ActionNode{
-
-	ExpressionNode exp;
-
-	public WaitNode(){}
-	public WaitNode(ExpressionNode exp){
-		this.exp = exp;
-	}
+class SubSymbolNode implements OPNode{
 
 	@Override
-	public void execute(Robot robot) {
-
-		if(exp!=null){
-
-			int step = exp.evaluate(robot);
-			for(Map.Entry<VariableNode, Integer> e : Parser.variablesMap.entrySet()){
-				if(e.getKey().value.equals(exp.toString()))
-					step = e.getValue();
-			}
-
-			int i = 0;
-			while( i < step){
-				robot.idleWait();
-				i++;
-			}
-		}
-		else
-			robot.idleWait();
-	}
-
-	public String toString(){
-
-		if(exp!=null)
-			return "Wait("+this.exp+")";
-		else
-			return "Wait;";
-
-
+	public int evaluate(Robot robot) {
+		// TODO Auto-generated method stub
+		return 0;
 	}
 
-}
-
-class TurnAroundNode implements ActionNode{
-
 	@Override
-	public void execute(Robot robot) {
-		robot.turnAround();
+	public String getOP() {
+		// TODO Auto-generated method stub
+		return null;
 	}
 
 	public String toString(){
-		return "TurnAround;";
+		return "-";
 	}
-
 }
-
-class ShieldOnNode implements ActionNode{
+class MulSymbolNode implements OPNode{
 
 	@Override
-	public void execute(Robot robot) {
-		robot.setShield(true);
-	}
-
-	public String toString(){
-		return "ShieldOn;";
+	public int evaluate(Robot robot) {
+		// TODO Auto-generated method stub
+		return 0;
 	}
 
-}
-
-class ShielfOffNode implements ActionNode{
-
 	@Override
-	public void execute(Robot robot) {
-		robot.setShield(false);
+	public String getOP() {
+		// TODO Auto-generated method stub
+		return null;
 	}
 
 	public String toString(){
-		return "ShieldOff;";
+		return "*";
 	}
-
 }
+class DivSymbolNode implements OPNode{
 
-
-
-//==================================================================//
-//============================LOOP===============================//
-//=================================================================//
-
-class LoopNode implements StatementNode{
-
-	BlockNode block;
-
-	public LoopNode(BlockNode b){
-		this.block = b;
+	@Override
+	public int evaluate(Robot robot) {
+		// TODO Auto-generated method stub
+		return 0;
 	}
 
 	@Override
-	public void execute(Robot robot) {
-		while(true)
-			block.execute(robot);
+	public String getOP() {
+		// TODO Auto-generated method stub
+		return null;
 	}
 
 	public String toString(){
-		return "loop \n" + this.block;
+		return "/";
 	}
-
 }
-
-//==================================================================//
-//=========================CONDITIONALS=============================//
-//=================================================================//
-class IFNode implements StatementNode{
-
-	ConditionalNode condition;
-	Map<ConditionalNode, BlockNode> elifBlocks;		//List of elseIf Blocks *
-	BlockNode mainBlock, elseBlock;
-
-	public IFNode(ConditionalNode c, BlockNode b){
-		this.condition = c;
-		this.mainBlock = b;
-		this.elifBlocks = new HashMap<ConditionalNode, BlockNode>();
-	}
-
-	@Override
-	public void execute(Robot robot) {
-
-		//IF
-		if(elifBlocks.size() == 0 && elseBlock == null){
-			if(condition.evaluate(robot))
-				mainBlock.execute(robot);
-		}
-		//IF|ELSE
-		else if(elifBlocks.size() == 0 && elseBlock != null){
-			if(condition.evaluate(robot))
-				mainBlock.execute(robot);
-			else if(!condition.evaluate(robot))
-				elseBlock.execute(robot);
-
-		}
-		//IF|ELIF
-		else if(elifBlocks.size() > 0 && elseBlock == null){
-			if(condition.evaluate(robot))
-				mainBlock.execute(robot);
-			else if(!condition.evaluate(robot)){
-				for(Map.Entry<ConditionalNode, BlockNode> e : elifBlocks.entrySet()){
-					if(e.getKey().evaluate(robot)){
-						e.getValue().execute(robot);
-					}
-				}
-			}
-		}
-		//IF|ELIF|ELSE
-		else{
-			
-			if(condition.evaluate(robot)){
-				mainBlock.execute(robot);
-			}
-			else{
-				boolean bool = false;
-				for(Map.Entry<ConditionalNode, BlockNode> e : elifBlocks.entrySet()){
-					if(e.getKey().evaluate(robot)){
-						e.getValue().execute(robot);
-						bool = true;
-						break;
-					}
-				}
-				if(!bool){
-					elseBlock.execute(robot);
-				}
-			}
-		}
-	}
-
-	public void setElseBlock(BlockNode e){
-		this.elseBlock = e;
-	}
-
-	public String toString(){
-
-		String ifString = null;
-		String tabRepeat = new String(new char[Parser.depthCounter]).replace("\0", "\t");
-
-		if(elifBlocks.size() == 0 && elseBlock == null){
-			ifString = "if ("+this.condition +")"+ this.mainBlock;
-		}
-		else if(elifBlocks.size() == 0 && elseBlock != null){
-			ifString =  "if("+this.condition +")"+ this.mainBlock +"\n"+tabRepeat+
-					"else"+ this.elseBlock;
-		}
-		else if(elifBlocks.size() > 0 && elseBlock == null){
-			ifString = "if ("+this.condition +")"+ this.mainBlock;
-			for(Map.Entry<ConditionalNode, BlockNode> e : elifBlocks.entrySet()){
-				ifString += "elif("+e.getKey()+")"+e.getValue()+"\n"+tabRepeat;
-			}
-		}
-		else{
-			ifString = "if ("+this.condition +")"+ this.mainBlock;
-			for(Map.Entry<ConditionalNode, BlockNode> e : elifBlocks.entrySet()){
-				ifString += "elif("+e.getKey()+")"+e.getValue()+"\n"+tabRepeat;
-			}
-			ifString += "else" + this.elseBlock;
-		}
-
-		return ifString;
-
-	}
-
-
-}
-
-class WhileNode implements StatementNode{
-
-
-	ConditionalNode condition;
-	BlockNode block;
-
-	public WhileNode(ConditionalNode c, BlockNode b){
-		this.condition = c;
-		this.block = b;
-	}
-
-	@Override
-	public void execute(Robot robot) {
-		while(condition.evaluate(robot))
-			block.execute(robot);
-	}
-
-	public String toString(){
-		return "while( "+this.condition + ")" +this.block;
-	}
-
-
-}
-
-interface ConditionalNode{
-	public boolean evaluate(Robot robot);
-}
-
-class GreaterThanNode implements ConditionalNode{
-
-	ExpressionNode left;
-	ExpressionNode right;
-
-	public GreaterThanNode(ExpressionNode left, ExpressionNode right){
-		this.left = left;
-		this.right = right;
-	}
-
-	@Override
-	public boolean evaluate(Robot robot) {
-
-		int l = left.evaluate(robot);
-		int r = right.evaluate(robot);
-
-		for(Map.Entry<VariableNode, Integer> e : Parser.variablesMap.entrySet()){
-			if(e.getKey().value.equals(left.toString()))
-				l = e.getValue();
-			if(e.getKey().value.equals(right.toString()))
-				r = e.getValue();
-		}
-
-		if( l > r)
-			return true;
-		else
-			return false;
-
-	}
-
-	public String toString(){
-		return "gt( "+left+", "+right+ ")";
-	}
-}
-class LessThanNode implements ConditionalNode{
-
-	ExpressionNode left;
-	ExpressionNode right;
-
-	public LessThanNode(ExpressionNode left, ExpressionNode right){
-		this.left = left;
-		this.right = right;
-	}
-
-	@Override
-	public boolean evaluate(Robot robot) {
-
-		int l = left.evaluate(robot);
-		int r = right.evaluate(robot);
-
-		for(Map.Entry<VariableNode, Integer> e : Parser.variablesMap.entrySet()){
-			if(e.getKey().value.equals(left.toString()))
-				l = e.getValue();
-			if(e.getKey().value.equals(right.toString()))
-				r = e.getValue();
-		}
-
-		if( l < r)
-			return true;
-		else
-			return false;
-	}
-
-	public String toString(){
-		return "lt( "+left+", "+right+ ")";
-	}
-}
-class EqualsNode implements ConditionalNode{
-
-	ExpressionNode left;
-	ExpressionNode right;
-
-	public EqualsNode(ExpressionNode left, ExpressionNode right){
-		this.left = left;
-		this.right = right;
-	}
-
-	@Override
-	public boolean evaluate(Robot robot) {
-
-		int l = left.evaluate(robot);
-		int r = right.evaluate(robot);
-
-		for(Map.Entry<VariableNode, Integer> e : Parser.variablesMap.entrySet()){
-			if(e.getKey().value.equals(left.toString()))
-				l = e.getValue();
-			if(e.getKey().value.equals(right.toString()))
-				r = e.getValue();
-		}
-
-		if( l == r)
-			return true;
-		else
-			return false;
-	}
-
-	public String toString(){
-		return "eq( "+left+", "+right+ ")";
-	}
-}
-
-class AndNode implements ConditionalNode{
-
-	ConditionalNode left;
-	ConditionalNode right;
-
-	public AndNode(ConditionalNode left, ConditionalNode right){
-		this.left = left;
-		this.right = right;
-	}
-
-	@Override
-	public boolean evaluate(Robot robot) {
-
-		if(left.evaluate(robot) && right.evaluate(robot))
-			return true;
-		else
-			return false;
-	}
-
-	public String toString(){
-		return "and( "+left+", "+ right + ")";
-	}
-}
-
-class OrNode implements ConditionalNode{
-
-	ConditionalNode left;
-	ConditionalNode right;
-
-	public OrNode(ConditionalNode left, ConditionalNode right){
-		this.left = left;
-		this.right = right;
-	}
-
-	@Override
-	public boolean evaluate(Robot robot) {
-
-		if(left.evaluate(robot) || right.evaluate(robot))
-			return true;
-		else
-			return false;
-	}
-
-	public String toString(){
-		return "or( "+left+", "+ right + ")";
-	}
-}
-
-class NotNode implements ConditionalNode{
-
-	ConditionalNode cond;
-
-	public NotNode(ConditionalNode cond){
-		this.cond = cond;
-	}
-
-	@Override
-	public boolean evaluate(Robot robot) {
-
-		if(!(cond.evaluate(robot)))
-			return true;
-		else
-			return false;
-
-	}
-
-	public String toString(){
-		return "not( "+cond+")";
-	}
-}
-
-//==================================================================//
-//============================BLOCK===============================//
-//=================================================================//
-
-
-class BlockNode implements StatementNode{
-
-	List<StatementNode> statements;		//STMT -- LIST OF STATEMENTS
-	int tabCounter = 0;
-
-	public BlockNode(){
-		this.statements = new ArrayList<StatementNode>();
-	}
-
-
-	@Override
-	public void execute(Robot robot) {
-		for(StatementNode sn: statements)
-			sn.execute(robot);
-	}
-
-
-
-	public List<StatementNode> getStatements() {
-		return statements;
-	}
-
-
-	public String toString(){
-
-		StringBuilder sb = new StringBuilder();
-		String tabRepeat = null;
-
-		Parser.depthCounter++;
-		sb.append( "{ \n" );
-
-		for(StatementNode sn: statements){
-			tabRepeat = new String(new char[Parser.depthCounter]).replace("\0", "\t");
-			sb.append(tabRepeat+sn+"\n");
-		}
-		Parser.depthCounter--;
-		tabRepeat = new String(new char[Parser.depthCounter]).replace("\0", "\t");
-		sb.append( tabRepeat+"}" );
-
-		return sb.toString();
-	}
-
-
-
-}
-
-//==================================================================//
-//========================SENSOR + NUM + OP=========================//
-//=================================================================//
-interface ExpressionNode{
-	public int evaluate(Robot robot);
-}
-
-interface SensorNode extends ExpressionNode{
-	public int evaluate(Robot robot);
-}
-
-class FuelLeftNode implements SensorNode{
-
-	@Override
-	public int evaluate(Robot robot) {
-		return robot.getFuel();
-	}
-
-	public String toString(){
-		return "FuelLeft";
-	}
-}
-class OppLRNode implements SensorNode{
-
-	@Override
-	public int evaluate(Robot robot) {
-		return robot.getOpponentLR();
-	}
-
-	public String toString(){
-		return "OppLR";
-	}
-}
-class OppFBNode implements SensorNode{
-
-	@Override
-	public int evaluate(Robot robot) {
-		return robot.getOpponentFB();
-	}
-
-	public String toString(){
-		return "OppFB";
-	}
-}
-class NumBarrelsNode implements SensorNode{
-
-	@Override
-	public int evaluate(Robot robot) {
-		return robot.numBarrels();
-	}
-
-	public String toString(){
-		return "NumBarrels";
-	}
-}
-class BarrelLRNode implements SensorNode{
-
-	ExpressionNode exp;
-
-	public BarrelLRNode(){}
-	public BarrelLRNode(ExpressionNode exp){
-		this.exp = exp;
-	}
-
-	@Override
-	public int evaluate(Robot robot) {
-
-		if(exp!=null){
-		
-			int step = exp.evaluate(robot);
-
-			if(robot.getClosestBarrelLR() == 0 && robot.getClosestBarrelFB() == 0)
-				return robot.getBarrelLR(0);
-			else
-				return robot.getBarrelLR(step);
-			
-		}
-		else
-			return robot.getClosestBarrelLR();
-
-	}
-
-	public String toString(){
-
-		if(exp!=null)
-			return "BarrelLR("+this.exp+")";
-		else
-			return "BarrelLR";
-
-	}
-}
-class BarrelFBNode implements SensorNode{
-
-	ExpressionNode exp;
-
-	public BarrelFBNode(){}
-	public BarrelFBNode(ExpressionNode exp){
-		this.exp = exp;
-	}
-
-	@Override
-	public int evaluate(Robot robot) {
-
-		if(exp!=null){
-			
-			int step = exp.evaluate(robot);
-			
-			if(robot.getClosestBarrelLR() == 0 && robot.getClosestBarrelFB() == 0)
-				return robot.getBarrelFB(0);
-			else
-				return robot.getBarrelFB(step);
-			
-		}
-		else
-			return robot.getClosestBarrelFB();
-	}
-
-	public String toString(){
-
-		if(exp!=null)
-			return "BarrelFB("+this.exp+")";
-		else
-			return "BarrelFB";
-	}
-}
-class WallDistNode implements SensorNode{
-
-	@Override
-	public int evaluate(Robot robot) {
-		return robot.getDistanceToWall();
-	}
-
-	public String toString(){
-		return "WallDist";
-	}
-}
-class NumberNode implements ExpressionNode{
-
-	int num;
-
-	public NumberNode(int num){
-		this.num = num;
-	}
-
-	public int getNum(){
-		return num;
-	}
-
-	@Override
-	public int evaluate(Robot robot) {
-		return num;
-	}
-
-	public String toString(){
-		return Integer.toString(num);
-	}
-}
-
-interface OPNode extends ExpressionNode{
-	public String getOP();
-}
-class AddNode implements OPNode{
-
-	@Override
-	public String getOP() {
-		return "add";
-	}
-
-	@Override
-	public int evaluate(Robot robot) {
-		// TODO Auto-generated method stub
-		return 0;
-	}
-
-	public String toString(){
-		return "add";
-	}
-}
-class SubNode implements OPNode{
-
-	@Override
-	public String getOP() {
-		return "sub";
-	}
-
-	@Override
-	public int evaluate(Robot robot) {
-		// TODO Auto-generated method stub
-		return 0;
-	}
-
-	public String toString(){
-		return "sub";
-	}
-}
-class MultNode implements OPNode{
-
-	@Override
-	public String getOP() {
-		return "mul";
-	}
-
-	@Override
-	public int evaluate(Robot robot) {
-		// TODO Auto-generated method stub
-		return 0;
-	}
-
-	public String toString(){
-		return "mult";
-	}
-}
-class DivNode implements OPNode{
-
-	@Override
-	public String getOP() {
-		return "div";
-	}
-
-	@Override
-	public int evaluate(Robot robot) {
-		// TODO Auto-generated method stub
-		return 0;
-	}
-
-	public String toString(){
-		return "div";
-	}
-}
-
-class OPNodeExpr implements ExpressionNode{
-
-	OPNode op;
-	ExpressionNode left, right;
-
-	public OPNodeExpr(OPNode op, ExpressionNode left, ExpressionNode right){
-		this.op = op;
-		this.left = left;
-		this.right = right;
-	}
-
-	@Override
-	public int evaluate(Robot robot) {
-
-		int l = left.evaluate(robot);
-		int r = right.evaluate(robot);
-
-		for(Map.Entry<VariableNode, Integer> e : Parser.variablesMap.entrySet()){
-			if(e.getKey().value.equals(left.toString()))
-				l = e.getValue();
-			if(e.getKey().value.equals(right.toString()))
-				r = e.getValue();
-		}
-
-		int eval = 0;
-		if(op.getClass() == AddNode.class)			eval = l + r;
-		else if(op.getClass() == SubNode.class)  	eval = l - r;
-		else if(op.getClass() == MultNode.class)	eval = l * r;
-		else if(op.getClass() == DivNode.class)		eval = l / r;
-
-		return eval;
-	}
-
-	public String toString(){
-		return op.toString() + "(" + left.toString() + ", " + right.toString() + ")";
-	}
-
-}
-
-class VariableNode implements ExpressionNode{
-
-	String value = null;
-
-	public VariableNode(String value){
-		this.value = value;
-	}
-
-	@Override
-	public int evaluate(Robot robot) {
-
-		
-		for(Map.Entry<VariableNode, Integer> e : Parser.variablesMap.entrySet()){
-			if(this.value.equals(e.getKey().value)){
-				return e.getValue();
-			}
-		}
-		
-		//Insert New Variable - Initialized to 0
-		Parser.variablesMap.put(new VariableNode(value), 0);
-
-		return 0;
-	}
-
-	public String toString(){
-		return value;
-	}
-}
-
-class AssignmentNode implements StatementNode{
-
-	VariableNode var;
-	ExpressionNode exp;
-
-	public AssignmentNode(VariableNode var, ExpressionNode exp){
-
-		this.var = var;
-		this.exp = exp;
-
-	}
-
-	@Override
-	public void execute(Robot robot) {
-		// TODO Auto-generated method stub
-
-		//Update Map - Assign VAR = EXP
-		boolean bool = false;
-		VariableNode vb = null;
-		for(Map.Entry<VariableNode, Integer> e : Parser.variablesMap.entrySet()){
-			if(e.getKey().value.equals(var.value)){
-				vb = e.getKey();
-				bool = true;
-				break;
-			}
-		}
-
-		if(bool){
-			int val = exp.evaluate(robot);
-			Parser.variablesMap.remove(vb);
-			Parser.variablesMap.put(var, val);
-		}
-		else if(!bool)
-			Parser.variablesMap.put(var, exp.evaluate(robot));
-
-	}
-
-	public String toString(){
-		return var + " = " + exp;
-	}
-
-}
-
-class BoolNode implements ConditionalNode{
-
-	String cond;
-
-	public BoolNode(String cond){
-		this.cond = cond;
-	}
-
-	public boolean evaluate(Robot robot){
-
-		if(cond.equals("true"))
-			return true;
-		else
-			return false;
-	}
-}
-
-interface CompNode{}
-class LTCompNode implements CompNode{}
-class LTEQCompNode implements CompNode{}
-class GTCompNode implements CompNode{}
-class GTEQCompNode implements CompNode{}
-class EQCompNode implements CompNode{}
-class NEQCompNode implements CompNode{}
-
-interface LogicNode{}
-class ANDLogicNode implements LogicNode{}
-class ORLogicNode implements LogicNode{}
-class NOTLogicNode implements LogicNode{}
-
-class AddSymbolNode implements OPNode{
-
-	@Override
-	public int evaluate(Robot robot) {
-		// TODO Auto-generated method stub
-		return 0;
-	}
-
-	@Override
-	public String getOP() {
-		// TODO Auto-generated method stub
-		return null;
-	}
-
-	public String toString(){
-		return "+";
-	}
-}
-class SubSymbolNode implements OPNode{
-
-	@Override
-	public int evaluate(Robot robot) {
-		// TODO Auto-generated method stub
-		return 0;
-	}
-
-	@Override
-	public String getOP() {
-		// TODO Auto-generated method stub
-		return null;
-	}
-
-	public String toString(){
-		return "-";
-	}
-}
-class MulSymbolNode implements OPNode{
-
-	@Override
-	public int evaluate(Robot robot) {
-		// TODO Auto-generated method stub
-		return 0;
-	}
-
-	@Override
-	public String getOP() {
-		// TODO Auto-generated method stub
-		return null;
-	}
-
-	public String toString(){
-		return "*";
-	}
-}
-class DivSymbolNode implements OPNode{
-
-	@Override
-	public int evaluate(Robot robot) {
-		// TODO Auto-generated method stub
-		return 0;
-	}
-
-	@Override
-	public String getOP() {
-		// TODO Auto-generated method stub
-		return null;
-	}
-
-	public String toString(){
-		return "/";
-	}
-}
-
-
-//==================================================================//
-//============================PROGRAM===============================//
-//=================================================================//
-
-class ProgramNode implements RobotProgramNode{
-
-
-	List<StatementNode> statements;
-
-	public ProgramNode(){
-		this.statements = new ArrayList<StatementNode>();
-	}
-
-	@Override
-	public void execute(Robot robot) {
-
-		for(StatementNode s : statements)
-			s.execute(robot);
-
-	}
-
-
-
-	public List<StatementNode> getStatements() {
-		return statements;
-	}
-
-	public String toString(){
-		StringBuilder sb = new StringBuilder();
-
-		for(StatementNode sn: statements)
-			sb.append(sn+"\n");
-
-		return sb.toString();
-	}
-}
-
-
-
-//Empty Interfaces - SubTyping/Polymorphism
-interface StatementNode extends RobotProgramNode{}
-interface ActionNode extends StatementNode{}
-
-
-
@@ -0,0 +1,132 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Many robot programs packed into a single file, so a large corpus can be
+ * memory mapped once and parsed straight out of the mapping instead of opening
+ * thousands of small files.
+ *
+ * The format is the magic number, the number of entries, and then for each
+ * entry the length and UTF-8 bytes of its name followed by the length and
+ * bytes of its source.
+ *
+ * To pack the .prog files of some directories (or individual files) run
+ * <code>java ProgramArchive out.rpak dir...</code>
+ */
+class ProgramArchive {
+
+	private static final int MAGIC = 0x5250414b; // "RPAK"
+
+	private final ByteBuffer data;
+	private final String[] names;
+	private final int[] offsets, lengths;
+
+	private ProgramArchive(ByteBuffer data, String[] names, int[] offsets, int[] lengths) {
+		this.data = data;
+		this.names = names;
+		this.offsets = offsets;
+		this.lengths = lengths;
+	}
+
+	/** Maps the archive and reads its index. */
+	static ProgramArchive open(File file) throws IOException {
+		ByteBuffer data;
+		try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			data = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+		}
+		try {
+			if (data.getInt() != MAGIC)
+				throw new IOException("Not a program archive: " + file);
+			// every length is checked against what is left before anything is allocated
+			int count = data.getInt();
+			if (count < 0 || count > data.remaining() / 8) // at least two lengths an entry
+				throw corrupt(file);
+			String[] names = new String[count];
+			int[] offsets = new int[count], lengths = new int[count];
+			for (int i = 0; i < count; i++) {
+				int nameLength = data.getInt();
+				if (nameLength < 0 || nameLength > data.remaining())
+					throw corrupt(file);
+				byte[] name = new byte[nameLength];
+				data.get(name);
+				names[i] = new String(name, StandardCharsets.UTF_8);
+				lengths[i] = data.getInt();
+				if (lengths[i] < 0 || lengths[i] > data.remaining())
+					throw corrupt(file);
+				offsets[i] = data.position();
+				data.position(offsets[i] + lengths[i]);
+			}
+			return new ProgramArchive(data, names, offsets, lengths);
+		} catch (RuntimeException e) { // BufferUnderflow
+			IOException corrupt = corrupt(file);
+			corrupt.initCause(e);
+			throw corrupt;
+		}
+	}
+
+	private static IOException corrupt(File file) {
+		return new IOException("Corrupt program archive: " + file);
+	}
+
+	int size() {
+		return names.length;
+	}
+
+	String name(int i) {
+		return names[i];
+	}
+
+	/**
+	 * The source of the ith program, a view of the mapped archive. Each call
+	 * returns a new view, so different threads can lex different entries.
+	 */
+	ByteBuffer source(int i) {
+		ByteBuffer view = data.duplicate();
+		view.limit(offsets[i] + lengths[i]);
+		view.position(offsets[i]);
+		return view.slice();
+	}
+
+	/** Packs the given program files into an archive. */
+	static void write(File out, List<File> programs) throws IOException {
+		try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(out)))) {
+			dos.writeInt(MAGIC);
+			dos.writeInt(programs.size());
+			for (File f : programs) {
+				byte[] name = f.getPath().getBytes(StandardCharsets.UTF_8);
+				byte[] source = Files.readAllBytes(f.toPath());
+				dos.writeInt(name.length);
+				dos.write(name);
+				dos.writeInt(source.length);
+				dos.write(source);
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: java ProgramArchive out.rpak (dir|file.prog)...");
+			return;
+		}
+		List<File> programs = new ArrayList<File>();
+		for (int i = 1; i < args.length; i++) {
+			File f = new File(args[i]);
+			if (f.isDirectory())
+				programs.addAll(BatchParser.findPrograms(f));
+			else
+				programs.add(f);
+		}
+		write(new File(args[0]), programs);
+		System.out.println("Packed " + programs.size() + " programs into " + args[0]);
+	}
+}
@@ -0,0 +1,534 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A flat representation of program trees, held in a single int array rather
+ * than one object per node. Any number of programs can be added to the same
+ * arena, which is how large populations of candidate programs are kept in
+ * memory.
+ *
+ * Each node is a header int (its opcode in the low 8 bits and its number of
+ * operands above them) followed by its operands. An operand is the offset of a
+ * child node, except for NUMBER whose operand is the constant itself and
+ * VARIABLE whose operand is the id of the name in the arena's name table.
+ * Children are always stored before their parent, so every child offset is
+ * smaller than the offset of the node referring to it.
+ *
+ * Optional arguments (move, wait, barrelLR, barrelFB) simply have zero or one
+ * operand. IF has the condition and block, then a condition and block per
+ * elif, then the else block if there is one (so an odd count means an else).
+ */
+class ProgramArena {
+
+	// Opcodes
+	static final int PROGRAM = 1, BLOCK = 2, MOVE = 3, TURNL = 4, TURNR = 5, TURNAROUND = 6, SHIELDON = 7,
+			SHIELDOFF = 8, TAKEFUEL = 9, WAIT = 10, LOOP = 11, IF = 12, WHILE = 13, ASSIGN = 14, AND = 15, OR = 16,
+			NOT = 17, GT = 18, LT = 19, EQ = 20, FUELLEFT = 21, OPPLR = 22, OPPFB = 23, NUMBARRELS = 24,
+			BARRELLR = 25, BARRELFB = 26, WALLDIST = 27, NUMBER = 28, ADD = 29, SUB = 30, MUL = 31, DIV = 32,
+			VARIABLE = 33;
+
+	private int[] code;
+	private int size = 0;
+
+	private final List<String> names = new ArrayList<String>();
+	private final Map<String, Integer> nameIds = new HashMap<String, Integer>();
+
+	ProgramArena() {
+		this(1024);
+	}
+
+	ProgramArena(int capacity) {
+		code = new int[Math.max(capacity, 16)];
+	}
+
+	/**
+	 * Wraps existing contents, e.g. read back from disk. Use validate before
+	 * trusting any node in it.
+	 */
+	ProgramArena(int[] code, List<String> names) {
+		this.code = code;
+		this.size = code.length;
+		for (String n : names)
+			nameId(n);
+	}
+
+	// Reading nodes
+
+	int opcode(int node) {
+		return code[node] & 0xff;
+	}
+
+	int operandCount(int node) {
+		return code[node] >>> 8;
+	}
+
+	int operand(int node, int i) {
+		return code[node + 1 + i];
+	}
+
+	/** The number of child nodes, 0 for NUMBER and VARIABLE. */
+	int childCount(int node) {
+		int op = opcode(node);
+		return (op == NUMBER || op == VARIABLE) ? 0 : operandCount(node);
+	}
+
+	int child(int node, int i) {
+		return operand(node, i);
+	}
+
+	/** The value of a NUMBER node. */
+	int constant(int node) {
+		return operand(node, 0);
+	}
+
+	/** The name of a VARIABLE node. */
+	String variableName(int node) {
+		return names.get(operand(node, 0));
+	}
+
+	/** The number of ints used so far. */
+	int size() {
+		return size;
+	}
+
+	/** The ints used so far, the array may be shared with the arena. */
+	int[] code() {
+		return size == code.length ? code : Arrays.copyOf(code, size);
+	}
+
+	List<String> names() {
+		return names;
+	}
+
+	/** A cursor positioned at the given node. */
+	Cursor cursor(int node) {
+		return new Cursor(node);
+	}
+
+	/**
+	 * Walks the subtree below node in prefix order. If enter returns false the
+	 * children of that node are skipped.
+	 */
+	void walk(int node, Visitor visitor) {
+		if (visitor.enter(node)) {
+			for (int i = 0, n = childCount(node); i < n; i++)
+				walk(child(node, i), visitor);
+		}
+		visitor.leave(node);
+	}
+
+	/** Receives the nodes of a walk. */
+	interface Visitor {
+		boolean enter(int node);
+
+		void leave(int node);
+	}
+
+	/**
+	 * A movable view of one node, so a tree can be navigated without keeping
+	 * track of offsets by hand.
+	 */
+	class Cursor {
+		private int node;
+
+		Cursor(int node) {
+			this.node = node;
+		}
+
+		int node() {
+			return node;
+		}
+
+		int opcode() {
+			return ProgramArena.this.opcode(node);
+		}
+
+		int childCount() {
+			return ProgramArena.this.childCount(node);
+		}
+
+		int constant() {
+			return ProgramArena.this.constant(node);
+		}
+
+		String variableName() {
+			return ProgramArena.this.variableName(node);
+		}
+
+		/** Moves to the ith child. */
+		Cursor down(int i) {
+			node = child(node, i);
+			return this;
+		}
+
+		Cursor moveTo(int node) {
+			this.node = node;
+			return this;
+		}
+	}
+
+	// Conversion from nodes
+
+	/** Appends the program to the arena, returning the offset of its root. */
+	int add(ProgramNode program) {
+		return addList(PROGRAM, program.getStatements());
+	}
+
+	private int addList(int opcode, List<StatementNode> statements) {
+		int[] children = new int[statements.size()];
+		for (int i = 0; i < children.length; i++)
+			children[i] = addStatement(statements.get(i));
+		return emit(opcode, children);
+	}
+
+	private int addStatement(StatementNode s) {
+		if (s instanceof MoveNode)
+			return emitOptional(MOVE, ((MoveNode) s).exp);
+		if (s instanceof WaitNode)
+			return emitOptional(WAIT, ((WaitNode) s).exp);
+		if (s instanceof TurnLNode)
+			return emit(TURNL);
+		if (s instanceof TurnRNode)
+			return emit(TURNR);
+		if (s instanceof TurnAroundNode)
+			return emit(TURNAROUND);
+		if (s instanceof ShieldOnNode)
+			return emit(SHIELDON);
+		if (s instanceof ShielfOffNode)
+			return emit(SHIELDOFF);
+		if (s instanceof TakeFuelNode)
+			return emit(TAKEFUEL);
+		if (s instanceof LoopNode)
+			return emit(LOOP, addList(BLOCK, ((LoopNode) s).block.getStatements()));
+		if (s instanceof WhileNode) {
+			WhileNode w = (WhileNode) s;
+			int c = addCondition(w.condition);
+			return emit(WHILE, c, addList(BLOCK, w.block.getStatements()));
+		}
+		if (s instanceof IFNode) {
+			IFNode i = (IFNode) s;
+			int n = 2 + 2 * i.elifs.length + (i.elseBlock != null ? 1 : 0);
+			int[] operands = new int[n];
+			int k = 0;
+			operands[k++] = addCondition(i.condition);
+			operands[k++] = addList(BLOCK, i.mainBlock.getStatements());
+			for (IFNode.Elif e : i.elifs) {
+				operands[k++] = addCondition(e.condition);
+				operands[k++] = addList(BLOCK, e.block.getStatements());
+			}
+			if (i.elseBlock != null)
+				operands[k++] = addList(BLOCK, i.elseBlock.getStatements());
+			return emit(IF, operands);
+		}
+		if (s instanceof AssignmentNode) {
+			AssignmentNode a = (AssignmentNode) s;
+			int var = addExpression(a.var);
+			return emit(ASSIGN, var, addExpression(a.exp));
+		}
+		if (s instanceof BlockNode)
+			return addList(BLOCK, ((BlockNode) s).getStatements());
+		throw new IllegalArgumentException("Can't flatten statement " + s.getClass().getName());
+	}
+
+	private int addCondition(ConditionalNode c) {
+		if (c instanceof AndNode)
+			return emitConditions(AND, ((AndNode) c).left, ((AndNode) c).right);
+		if (c instanceof OrNode)
+			return emitConditions(OR, ((OrNode) c).left, ((OrNode) c).right);
+		if (c instanceof NotNode)
+			return emit(NOT, addCondition(((NotNode) c).cond));
+		if (c instanceof GreaterThanNode)
+			return emitExpressions(GT, ((GreaterThanNode) c).left, ((GreaterThanNode) c).right);
+		if (c instanceof LessThanNode)
+			return emitExpressions(LT, ((LessThanNode) c).left, ((LessThanNode) c).right);
+		if (c instanceof EqualsNode)
+			return emitExpressions(EQ, ((EqualsNode) c).left, ((EqualsNode) c).right);
+		throw new IllegalArgumentException("Can't flatten condition " + c.getClass().getName());
+	}
+
+	private int addExpression(ExpressionNode e) {
+		if (e instanceof NumberNode)
+			return emit(NUMBER, ((NumberNode) e).num);
+		if (e instanceof VariableNode)
+			return emit(VARIABLE, nameId(((VariableNode) e).value));
+		if (e instanceof OPNodeExpr) {
+			OPNodeExpr op = (OPNodeExpr) e;
+			int opcode = op.op instanceof AddNode ? ADD : op.op instanceof SubNode ? SUB
+					: op.op instanceof MultNode ? MUL : op.op instanceof DivNode ? DIV : -1;
+			if (opcode < 0)
+				throw new IllegalArgumentException("Can't flatten operator " + op.op);
+			return emitExpressions(opcode, op.left, op.right);
+		}
+		if (e instanceof FuelLeftNode)
+			return emit(FUELLEFT);
+		if (e instanceof OppLRNode)
+			return emit(OPPLR);
+		if (e instanceof OppFBNode)
+			return emit(OPPFB);
+		if (e instanceof NumBarrelsNode)
+			return emit(NUMBARRELS);
+		if (e instanceof WallDistNode)
+			return emit(WALLDIST);
+		if (e instanceof BarrelLRNode)
+			return emitOptional(BARRELLR, ((BarrelLRNode) e).exp);
+		if (e instanceof BarrelFBNode)
+			return emitOptional(BARRELFB, ((BarrelFBNode) e).exp);
+		throw new IllegalArgumentException("Can't flatten expression " + e.getClass().getName());
+	}
+
+	private int emitConditions(int opcode, ConditionalNode left, ConditionalNode right) {
+		int l = addCondition(left);
+		return emit(opcode, l, addCondition(right));
+	}
+
+	private int emitExpressions(int opcode, ExpressionNode left, ExpressionNode right) {
+		int l = addExpression(left);
+		return emit(opcode, l, addExpression(right));
+	}
+
+	private int emitOptional(int opcode, ExpressionNode arg) {
+		return arg == null ? emit(opcode) : emit(opcode, addExpression(arg));
+	}
+
+	private int emit(int opcode, int... operands) {
+		if (size + 1 + operands.length > code.length)
+			code = Arrays.copyOf(code, Math.max(code.length * 2, size + 1 + operands.length));
+		int node = size;
+		code[size++] = opcode | (operands.length << 8);
+		System.arraycopy(operands, 0, code, size, operands.length);
+		size += operands.length;
+		return node;
+	}
+
+	private int nameId(String name) {
+		Integer id = nameIds.get(name);
+		if (id == null) {
+			id = names.size();
+			names.add(name);
+			nameIds.put(name, id);
+		}
+		return id;
+	}
+
+	// Conversion to nodes
+
+	/** Rebuilds the node objects of the program rooted at the given offset. */
+	ProgramNode toNode(int root) {
+		ProgramNode program = new ProgramNode();
+		VariableTable vars = new VariableTable();
+		for (int i = 0, n = childCount(root); i < n; i++)
+			program.getStatements().add(toStatement(child(root, i), vars));
+		program.setVariables(vars.names());
+		return program;
+	}
+
+	private BlockNode toBlock(int node, VariableTable vars) {
+		BlockNode block = new BlockNode();
+		for (int i = 0, n = childCount(node); i < n; i++)
+			block.getStatements().add(toStatement(child(node, i), vars));
+		return block;
+	}
+
+	private StatementNode toStatement(int node, VariableTable vars) {
+		switch (opcode(node)) {
+		case MOVE:
+			return new MoveNode(toOptional(node, vars));
+		case WAIT:
+			return new WaitNode(toOptional(node, vars));
+		case TURNL:
+			return new TurnLNode();
+		case TURNR:
+			return new TurnRNode();
+		case TURNAROUND:
+			return new TurnAroundNode();
+		case SHIELDON:
+			return new ShieldOnNode();
+		case SHIELDOFF:
+			return new ShielfOffNode();
+		case TAKEFUEL:
+			return new TakeFuelNode();
+		case LOOP:
+			return new LoopNode(toBlock(child(node, 0), vars));
+		case WHILE:
+			return new WhileNode(toCondition(child(node, 0), vars), toBlock(child(node, 1), vars));
+		case IF: {
+			int n = childCount(node);
+			IFNode i = new IFNode(toCondition(child(node, 0), vars), toBlock(child(node, 1), vars));
+			int k = 2;
+			for (; k + 1 < n; k += 2)
+				i.addElif(toCondition(child(node, k), vars), toBlock(child(node, k + 1), vars));
+			if (k < n)
+				i.setElseBlock(toBlock(child(node, k), vars));
+			return i;
+		}
+		case ASSIGN:
+			return new AssignmentNode((VariableNode) toExpression(child(node, 0), vars), toExpression(child(node, 1), vars));
+		case BLOCK:
+			return toBlock(node, vars);
+		}
+		throw new IllegalStateException("Not a statement at " + node);
+	}
+
+	private ConditionalNode toCondition(int node, VariableTable vars) {
+		switch (opcode(node)) {
+		case AND:
+			return new AndNode(toCondition(child(node, 0), vars), toCondition(child(node, 1), vars));
+		case OR:
+			return new OrNode(toCondition(child(node, 0), vars), toCondition(child(node, 1), vars));
+		case NOT:
+			return new NotNode(toCondition(child(node, 0), vars));
+		case GT:
+			return new GreaterThanNode(toExpression(child(node, 0), vars), toExpression(child(node, 1), vars));
+		case LT:
+			return new LessThanNode(toExpression(child(node, 0), vars), toExpression(child(node, 1), vars));
+		case EQ:
+			return new EqualsNode(toExpression(child(node, 0), vars), toExpression(child(node, 1), vars));
+		}
+		throw new IllegalStateException("Not a condition at " + node);
+	}
+
+	private ExpressionNode toOptional(int node, VariableTable vars) {
+		return childCount(node) == 0 ? null : toExpression(child(node, 0), vars);
+	}
+
+	private ExpressionNode toExpression(int node, VariableTable vars) {
+		switch (opcode(node)) {
+		case NUMBER:
+			return new NumberNode(constant(node));
+		case VARIABLE:
+			return vars.variable(variableName(node));
+		case ADD:
+			return new OPNodeExpr(new AddNode(), toExpression(child(node, 0), vars), toExpression(child(node, 1), vars));
+		case SUB:
+			return new OPNodeExpr(new SubNode(), toExpression(child(node, 0), vars), toExpression(child(node, 1), vars));
+		case MUL:
+			return new OPNodeExpr(new MultNode(), toExpression(child(node, 0), vars), toExpression(child(node, 1), vars));
+		case DIV:
+			return new OPNodeExpr(new DivNode(), toExpression(child(node, 0), vars), toExpression(child(node, 1), vars));
+		case FUELLEFT:
+			return new FuelLeftNode();
+		case OPPLR:
+			return new OppLRNode();
+		case OPPFB:
+			return new OppFBNode();
+		case NUMBARRELS:
+			return new NumBarrelsNode();
+		case WALLDIST:
+			return new WallDistNode();
+		case BARRELLR:
+			return new BarrelLRNode(toOptional(node, vars));
+		case BARRELFB:
+			return new BarrelFBNode(toOptional(node, vars));
+		}
+		throw new IllegalStateException("Not an expression at " + node);
+	}
+
+	// Validation
+
+	private static final int STATEMENT = 0, CONDITION = 1, EXPRESSION = 2, BLOCK_ONLY = 3;
+
+	/**
+	 * Checks that root is a well formed program: every offset in range and
+	 * pointing backwards, every opcode of the right kind for its position and
+	 * every node with the right number of operands. Returns false rather than
+	 * throwing if not.
+	 */
+	boolean validate(int root) {
+		return inRange(root) && opcode(root) == PROGRAM && validChildren(root, STATEMENT);
+	}
+
+	private boolean inRange(int node) {
+		return node >= 0 && node < size && node + operandCount(node) < size;
+	}
+
+	private boolean validChildren(int node, int kind) {
+		for (int i = 0, n = childCount(node); i < n; i++) {
+			int c = child(node, i);
+			if (c >= node || !valid(c, kind))
+				return false;
+		}
+		return true;
+	}
+
+	private boolean valid(int node, int kind) {
+		if (!inRange(node))
+			return false;
+		int op = opcode(node);
+		int n = operandCount(node);
+		switch (kind) {
+		case BLOCK_ONLY:
+			return op == BLOCK && validChildren(node, STATEMENT);
+		case STATEMENT:
+			switch (op) {
+			case BLOCK:
+				return validChildren(node, STATEMENT);
+			case MOVE:
+			case WAIT:
+				return n <= 1 && validChildren(node, EXPRESSION);
+			case TURNL:
+			case TURNR:
+			case TURNAROUND:
+			case SHIELDON:
+			case SHIELDOFF:
+			case TAKEFUEL:
+				return n == 0;
+			case LOOP:
+				return n == 1 && valid(child(node, 0), BLOCK_ONLY) && child(node, 0) < node;
+			case WHILE:
+			case IF:
+				if (n < 2 || (op == WHILE && n != 2))
+					return false;
+				for (int i = 0; i < n; i++) {
+					int c = child(node, i);
+					boolean cond = i + 1 < n && i % 2 == 0;
+					if (c >= node || !valid(c, cond ? CONDITION : BLOCK_ONLY))
+						return false;
+				}
+				return true;
+			case ASSIGN:
+				return n == 2 && child(node, 0) < node && opcode(child(node, 0)) == VARIABLE
+						&& validChildren(node, EXPRESSION);
+			}
+			return false;
+		case CONDITION:
+			switch (op) {
+			case AND:
+			case OR:
+				return n == 2 && validChildren(node, CONDITION);
+			case NOT:
+				return n == 1 && validChildren(node, CONDITION);
+			case GT:
+			case LT:
+			case EQ:
+				return n == 2 && validChildren(node, EXPRESSION);
+			}
+			return false;
+		case EXPRESSION:
+			switch (op) {
+			case NUMBER:
+				return n == 1;
+			case VARIABLE:
+				return n == 1 && operand(node, 0) >= 0 && operand(node, 0) < names.size();
+			case ADD:
+			case SUB:
+			case MUL:
+			case DIV:
+				return n == 2 && validChildren(node, EXPRESSION);
+			case FUELLEFT:
+			case OPPLR:
+			case OPPFB:
+			case NUMBARRELS:
+			case WALLDIST:
+				return n == 0;
+			case BARRELLR:
+			case BARRELFB:
+				return n <= 1 && validChildren(node, EXPRESSION);
+			}
+			return false;
+		}
+		return false;
+	}
+}
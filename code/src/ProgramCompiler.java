@@ -0,0 +1,442 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Compiles a program tree to a JVM class implementing RobotProgramNode, so the
+ * program runs as straight bytecode instead of through the execute/evaluate
+ * calls of the tree. Loops become JVM loops, conditions become branches and
+ * variables become locals of the execute method; the JIT can then inline the
+ * robot's sensor and action methods into it.
+ *
+ * The generated code does exactly what the tree would, including evaluating
+ * the same sensors in the same order, so a compiled program behaves like the
+ * interpreted one.
+ *
+ * Single loops can also be compiled on their own for {@link LoopTier}; their
+ * variables stay in the frame of the ExecutionContext rather than in locals,
+ * so the interpreter and the compiled loop see the same values.
+ *
+ * To compile programs to class files (in a directory or a jar) run
+ * <code>java ProgramCompiler (outdir|out.jar) file.prog...</code>
+ */
+class ProgramCompiler {
+
+	private static final String ROBOT = "Robot";
+
+	/**
+	 * The locals of execute: this, the robot, then the variables by slot. A
+	 * compiled loop has the frame array in place of the variables.
+	 */
+	private static final int ROBOT_LOCAL = 1, FIRST_VARIABLE = 2, FRAME_LOCAL = 2;
+
+	private final ClassWriter.Code code;
+
+	/** Whether variables are in the frame array rather than locals */
+	private final boolean inFrame;
+
+	private ProgramCompiler(ClassWriter.Code code, boolean inFrame) {
+		this.code = code;
+		this.inFrame = inFrame;
+	}
+
+	/**
+	 * Compiles the program to the bytes of a class with the given name.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the program can't be compiled (e.g. it is too large for
+	 *             one method)
+	 */
+	static byte[] compile(ProgramNode program, String className) {
+		ClassWriter cw = new ClassWriter(className, "java/lang/Object", "RobotProgramNode");
+		constructor(cw);
+
+		ClassWriter.Code execute = cw.method(ClassWriter.ACC_PUBLIC, "execute", "(L" + ROBOT + ";)V", 2);
+		for (int i = 0; i < program.variables.length; i++) {
+			int local = execute.newLocal();
+			execute.iconst(0);
+			execute.istore(local);
+		}
+		ProgramCompiler compiler = new ProgramCompiler(execute, false);
+		for (StatementNode s : program.getStatements())
+			compiler.statement(s);
+		execute.op(ClassWriter.Code.RETURN, 0);
+		execute.end();
+
+		return cw.toByteArray();
+	}
+
+	/**
+	 * Compiles a single while or loop statement to a loaded class that runs it
+	 * from the start of an iteration (for a while, from the condition test).
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the loop can't be compiled
+	 */
+	static LoopTier.CompiledLoop compileLoop(StatementNode loop) {
+		ClassWriter cw = new ClassWriter("CompiledLoop", "java/lang/Object", "LoopTier$CompiledLoop");
+		constructor(cw);
+		ClassWriter.Code run = cw.method(ClassWriter.ACC_PUBLIC, "run", "(L" + ROBOT + ";[I)V", 3);
+		new ProgramCompiler(run, true).statement(loop);
+		run.op(ClassWriter.Code.RETURN, 0);
+		run.end();
+		return (LoopTier.CompiledLoop) instantiate(cw.toByteArray());
+	}
+
+	private static void constructor(ClassWriter cw) {
+		ClassWriter.Code init = cw.method(ClassWriter.ACC_PUBLIC, "<init>", "()V", 1);
+		init.aload(0);
+		init.invoke(ClassWriter.Code.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", -1);
+		init.op(ClassWriter.Code.RETURN, 0);
+		init.end();
+	}
+
+	/**
+	 * Compiles the program and loads it as a hidden class, which is unloaded
+	 * again once the program is no longer used.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the program can't be compiled
+	 */
+	static RobotProgramNode load(ProgramNode program) {
+		return define(compile(program, "CompiledProgram"));
+	}
+
+	/** Reads a class file written by main and loads it. */
+	static RobotProgramNode define(File classFile) throws IOException {
+		return define(Files.readAllBytes(classFile.toPath()));
+	}
+
+	/** Loads a class written by compile. */
+	static RobotProgramNode define(byte[] classFile) {
+		return (RobotProgramNode) instantiate(classFile);
+	}
+
+	private static Object instantiate(byte[] classFile) {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+			return lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+		} catch (Throwable e) {
+			throw new IllegalArgumentException("Could not load compiled code: " + e, e);
+		}
+	}
+
+	// Statements
+
+	private void statement(StatementNode s) {
+		if (s instanceof MoveNode)
+			repeat(((MoveNode) s).exp, "move");
+		else if (s instanceof WaitNode)
+			repeat(((WaitNode) s).exp, "idleWait");
+		else if (s instanceof TurnLNode)
+			action("turnLeft");
+		else if (s instanceof TurnRNode)
+			action("turnRight");
+		else if (s instanceof TurnAroundNode)
+			action("turnAround");
+		else if (s instanceof TakeFuelNode)
+			action("takeFuel");
+		else if (s instanceof ShieldOnNode)
+			shield(true);
+		else if (s instanceof ShielfOffNode)
+			shield(false);
+		else if (s instanceof LoopNode)
+			loop((LoopNode) s);
+		else if (s instanceof WhileNode)
+			whileLoop((WhileNode) s);
+		else if (s instanceof IFNode)
+			ifStatement((IFNode) s);
+		else if (s instanceof AssignmentNode) {
+			AssignmentNode a = (AssignmentNode) s;
+			if (inFrame) {
+				code.aload(FRAME_LOCAL);
+				code.iconst(a.var.slot);
+				expression(a.exp);
+				code.op(ClassWriter.Code.IASTORE, -3);
+			} else {
+				expression(a.exp);
+				code.istore(FIRST_VARIABLE + a.var.slot);
+			}
+		} else if (s instanceof BlockNode)
+			block((BlockNode) s);
+		else
+			throw new IllegalArgumentException("Can't compile statement " + s.getClass().getName());
+	}
+
+	private void block(BlockNode block) {
+		for (StatementNode s : block.getStatements())
+			statement(s);
+	}
+
+	private void action(String method) {
+		code.aload(ROBOT_LOCAL);
+		code.invoke(ClassWriter.Code.INVOKEVIRTUAL, ROBOT, method, "()V", -1);
+	}
+
+	private void shield(boolean on) {
+		code.aload(ROBOT_LOCAL);
+		code.iconst(on ? 1 : 0);
+		code.invoke(ClassWriter.Code.INVOKEVIRTUAL, ROBOT, "setShield", "(Z)V", -2);
+	}
+
+	/** move and wait: the action once, or count times if given a count */
+	private void repeat(ExpressionNode count, String method) {
+		if (count == null) {
+			action(method);
+			return;
+		}
+		int n = code.newLocal(), i = code.newLocal();
+		expression(count);
+		code.istore(n);
+		code.iconst(0);
+		code.istore(i);
+		ClassWriter.Label test = new ClassWriter.Label(), end = new ClassWriter.Label();
+		code.mark(test);
+		code.iload(i);
+		code.iload(n);
+		code.jump(ClassWriter.Code.IF_ICMPGE, end);
+		action(method);
+		code.iinc(i, 1);
+		code.jump(ClassWriter.Code.GOTO, test);
+		code.mark(end);
+	}
+
+	private void loop(LoopNode loop) {
+		ClassWriter.Label top = new ClassWriter.Label();
+		code.mark(top);
+		block(loop.block);
+		charge(loop);
+		code.jump(ClassWriter.Code.GOTO, top);
+	}
+
+	private void whileLoop(WhileNode loop) {
+		ClassWriter.Label test = new ClassWriter.Label(), end = new ClassWriter.Label();
+		code.mark(test);
+		jumpIfFalse(loop.condition, end);
+		block(loop.block);
+		charge(loop);
+		code.jump(ClassWriter.Code.GOTO, test);
+		code.mark(end);
+	}
+
+	/** The back edge of a loop charges the robot as the interpreter does, see InstructionMeter */
+	private void charge(StatementNode loop) {
+		code.aload(ROBOT_LOCAL);
+		code.iconst(InstructionMeter.loopCost(loop));
+		code.invoke(ClassWriter.Code.INVOKEVIRTUAL, ROBOT, "charge", "(I)Z", -1);
+		code.op(ClassWriter.Code.POP, -1);
+	}
+
+	/** The first branch whose condition holds, as IFNode.execute */
+	private void ifStatement(IFNode i) {
+		ClassWriter.Label end = new ClassWriter.Label(), next = new ClassWriter.Label();
+		jumpIfFalse(i.condition, next);
+		block(i.mainBlock);
+		code.jump(ClassWriter.Code.GOTO, end);
+		code.mark(next);
+		for (IFNode.Elif e : i.elifs) {
+			next = new ClassWriter.Label();
+			jumpIfFalse(e.condition, next);
+			block(e.block);
+			code.jump(ClassWriter.Code.GOTO, end);
+			code.mark(next);
+		}
+		if (i.elseBlock != null)
+			block(i.elseBlock);
+		code.mark(end);
+	}
+
+	// Conditions
+
+	private void jumpIfFalse(ConditionalNode c, ClassWriter.Label target) {
+		c = NodeSpecializer.generic(c); // the loop may have run
+		if (c instanceof AndNode) {
+			jumpIfFalse(((AndNode) c).left, target);
+			jumpIfFalse(((AndNode) c).right, target);
+		} else if (c instanceof OrNode) {
+			ClassWriter.Label isTrue = new ClassWriter.Label();
+			jumpIfTrue(((OrNode) c).left, isTrue);
+			jumpIfFalse(((OrNode) c).right, target);
+			code.mark(isTrue);
+		} else if (c instanceof NotNode) {
+			jumpIfTrue(((NotNode) c).cond, target);
+		} else if (c instanceof GreaterThanNode) {
+			compare(((GreaterThanNode) c).left, ((GreaterThanNode) c).right, ClassWriter.Code.IF_ICMPLE, target);
+		} else if (c instanceof LessThanNode) {
+			compare(((LessThanNode) c).left, ((LessThanNode) c).right, ClassWriter.Code.IF_ICMPGE, target);
+		} else if (c instanceof EqualsNode) {
+			compare(((EqualsNode) c).left, ((EqualsNode) c).right, ClassWriter.Code.IF_ICMPNE, target);
+		} else {
+			throw new IllegalArgumentException("Can't compile condition " + c.getClass().getName());
+		}
+	}
+
+	private void jumpIfTrue(ConditionalNode c, ClassWriter.Label target) {
+		c = NodeSpecializer.generic(c);
+		if (c instanceof AndNode) {
+			ClassWriter.Label isFalse = new ClassWriter.Label();
+			jumpIfFalse(((AndNode) c).left, isFalse);
+			jumpIfTrue(((AndNode) c).right, target);
+			code.mark(isFalse);
+		} else if (c instanceof OrNode) {
+			jumpIfTrue(((OrNode) c).left, target);
+			jumpIfTrue(((OrNode) c).right, target);
+		} else if (c instanceof NotNode) {
+			jumpIfFalse(((NotNode) c).cond, target);
+		} else if (c instanceof GreaterThanNode) {
+			compare(((GreaterThanNode) c).left, ((GreaterThanNode) c).right, ClassWriter.Code.IF_ICMPGT, target);
+		} else if (c instanceof LessThanNode) {
+			compare(((LessThanNode) c).left, ((LessThanNode) c).right, ClassWriter.Code.IF_ICMPLT, target);
+		} else if (c instanceof EqualsNode) {
+			compare(((EqualsNode) c).left, ((EqualsNode) c).right, ClassWriter.Code.IF_ICMPEQ, target);
+		} else {
+			throw new IllegalArgumentException("Can't compile condition " + c.getClass().getName());
+		}
+	}
+
+	private void compare(ExpressionNode left, ExpressionNode right, int opcode, ClassWriter.Label target) {
+		expression(left);
+		expression(right);
+		code.jump(opcode, target);
+	}
+
+	// Expressions
+
+	/** Leaves the value of the expression on the stack. */
+	private void expression(ExpressionNode e) {
+		if (e instanceof NumberNode) {
+			code.iconst(((NumberNode) e).num);
+		} else if (e instanceof VariableNode) {
+			int slot = ((VariableNode) e).slot;
+			if (inFrame) {
+				code.aload(FRAME_LOCAL);
+				code.iconst(slot);
+				code.op(ClassWriter.Code.IALOAD, -1);
+			} else {
+				code.iload(FIRST_VARIABLE + slot);
+			}
+		} else if (e instanceof OPNodeExpr) {
+			OPNodeExpr op = (OPNodeExpr) e;
+			expression(op.left);
+			expression(op.right);
+			if (op.op instanceof AddNode)
+				code.op(ClassWriter.Code.IADD, -1);
+			else if (op.op instanceof SubNode)
+				code.op(ClassWriter.Code.ISUB, -1);
+			else if (op.op instanceof MultNode)
+				code.op(ClassWriter.Code.IMUL, -1);
+			else if (op.op instanceof DivNode)
+				code.op(ClassWriter.Code.IDIV, -1);
+			else
+				throw new IllegalArgumentException("Can't compile operator " + op.op);
+		} else if (e instanceof FuelLeftNode) {
+			sensor("getFuel");
+		} else if (e instanceof OppLRNode) {
+			sensor("getOpponentLR");
+		} else if (e instanceof OppFBNode) {
+			sensor("getOpponentFB");
+		} else if (e instanceof NumBarrelsNode) {
+			sensor("numBarrels");
+		} else if (e instanceof WallDistNode) {
+			sensor("getDistanceToWall");
+		} else if (e instanceof BarrelLRNode) {
+			barrel(((BarrelLRNode) e).exp, "getClosestBarrelLR", "getBarrelLR");
+		} else if (e instanceof BarrelFBNode) {
+			barrel(((BarrelFBNode) e).exp, "getClosestBarrelFB", "getBarrelFB");
+		} else {
+			throw new IllegalArgumentException("Can't compile expression " + e.getClass().getName());
+		}
+	}
+
+	private void sensor(String method) {
+		code.aload(ROBOT_LOCAL);
+		code.invoke(ClassWriter.Code.INVOKEVIRTUAL, ROBOT, method, "()I", 0);
+	}
+
+	/**
+	 * barrelLR and barrelFB: the closest barrel, or with an argument the nth
+	 * closest unless the robot is on the closest one (as BarrelLRNode).
+	 */
+	private void barrel(ExpressionNode n, String closest, String nth) {
+		if (n == null) {
+			sensor(closest);
+			return;
+		}
+		int index = code.newLocal();
+		expression(n);
+		code.istore(index);
+		ClassWriter.Label useIndex = new ClassWriter.Label(), end = new ClassWriter.Label();
+		sensor("getClosestBarrelLR");
+		code.jump(ClassWriter.Code.IFNE, useIndex);
+		sensor("getClosestBarrelFB");
+		code.jump(ClassWriter.Code.IFNE, useIndex);
+		code.aload(ROBOT_LOCAL);
+		code.iconst(0);
+		code.invoke(ClassWriter.Code.INVOKEVIRTUAL, ROBOT, nth, "(I)I", -1);
+		code.jump(ClassWriter.Code.GOTO, end);
+		code.mark(useIndex);
+		code.aload(ROBOT_LOCAL);
+		code.iload(index);
+		code.invoke(ClassWriter.Code.INVOKEVIRTUAL, ROBOT, nth, "(I)I", -1);
+		code.mark(end);
+	}
+
+	// Command line
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: java ProgramCompiler (outdir|out.jar) file.prog...");
+			return;
+		}
+		File out = new File(args[0]);
+		boolean jar = out.getName().endsWith(".jar");
+		JarOutputStream jarOut = jar ? new JarOutputStream(new FileOutputStream(out)) : null;
+		if (!jar)
+			out.mkdirs();
+		try {
+			for (int i = 1; i < args.length; i++) {
+				File f = new File(args[i]);
+				String name = className(f);
+				byte[] bytes;
+				try {
+					bytes = compile(Parser.parse(f), name);
+				} catch (ParserFailureException | IllegalArgumentException e) {
+					System.out.println("Could not compile " + f + ": " + e.getMessage());
+					continue;
+				}
+				if (jar) {
+					jarOut.putNextEntry(new JarEntry(name + ".class"));
+					jarOut.write(bytes);
+					jarOut.closeEntry();
+				} else {
+					try (OutputStream os = new FileOutputStream(new File(out, name + ".class"))) {
+						os.write(bytes);
+					}
+				}
+				System.out.println("Compiled " + f + " to " + name);
+			}
+		} finally {
+			if (jarOut != null)
+				jarOut.close();
+		}
+	}
+
+	/** A class name for the program file, e.g. s1_full.prog becomes Prog_s1_full. */
+	static String className(File f) {
+		String base = f.getName();
+		if (base.endsWith(".prog"))
+			base = base.substring(0, base.length() - 5);
+		StringBuilder sb = new StringBuilder("Prog_");
+		for (int i = 0; i < base.length(); i++) {
+			char c = base.charAt(i);
+			sb.append(Character.isJavaIdentifierPart(c) ? c : '_');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,42 @@
+import java.util.ArrayList;
+import java.util.List;
+
+class ProgramNode implements RobotProgramNode{
+
+
+	List<StatementNode> statements;
+	String[] variables = new String[0];		//Variable names by slot
+
+	public ProgramNode(){
+		this.statements = new ArrayList<StatementNode>();
+	}
+
+	@Override
+	public void execute(Robot robot) {
+
+		robot.context = new ExecutionContext(this);
+		for(StatementNode s : statements)
+			s.execute(robot);
+
+	}
+
+	/** Sets the variable names by slot, from the VariableTable the tree was built with. */
+	public void setVariables(String[] variables) {
+		this.variables = variables;
+	}
+
+
+
+	public List<StatementNode> getStatements() {
+		return statements;
+	}
+
+	public String toString(){
+		StringBuilder sb = new StringBuilder();
+
+		for(StatementNode sn: statements)
+			sb.append(sn+"\n");
+
+		return sb.toString();
+	}
+}
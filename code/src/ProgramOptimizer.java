@@ -0,0 +1,334 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Simplifies a parsed program before it is run: folds constant arithmetic,
+ * resolves comparisons whose outcome is known (gt(1, 0), eq($x, $x)), removes
+ * double negation and trivially true or false operands of and/or, and then
+ * removes the branches and loops that can never run.
+ *
+ * Sensors are reads of the world, but each one checks whether the robot has
+ * been cancelled, so the optimizer never removes a sensor the program would
+ * have evaluated, or changes the order they are evaluated in. Only pure parts
+ * of a program (numbers, variables and arithmetic that can't fail) are folded
+ * away.
+ *
+ * The tree is changed in place (the ParseCache gives every load a tree of its
+ * own). Each change is described in the report, which World prints when a
+ * program is loaded with robot.verbose set.
+ */
+class ProgramOptimizer {
+
+	private final List<String> report = new ArrayList<String>();
+
+	private ProgramOptimizer() {
+	}
+
+	/** Optimizes the program, returning a description of each change made. */
+	static List<String> optimize(ProgramNode program) {
+		ProgramOptimizer o = new ProgramOptimizer();
+		List<StatementNode> statements = o.statements(program.getStatements());
+		program.getStatements().clear();
+		program.getStatements().addAll(statements);
+		return o.report;
+	}
+
+	// Statements
+
+	private List<StatementNode> statements(List<StatementNode> in) {
+		List<StatementNode> out = new ArrayList<StatementNode>(in.size());
+		for (StatementNode s : in)
+			statement(s, out);
+		return out;
+	}
+
+	private BlockNode block(BlockNode block) {
+		List<StatementNode> statements = statements(block.getStatements());
+		block.getStatements().clear();
+		block.getStatements().addAll(statements);
+		return block;
+	}
+
+	/** Adds what the statement simplifies to (possibly nothing) to out. */
+	private void statement(StatementNode s, List<StatementNode> out) {
+		if (s instanceof MoveNode) {
+			MoveNode m = (MoveNode) s;
+			if (m.exp != null)
+				m.exp = expression(m.exp);
+			out.add(m);
+		} else if (s instanceof WaitNode) {
+			WaitNode w = (WaitNode) s;
+			if (w.exp != null)
+				w.exp = expression(w.exp);
+			out.add(w);
+		} else if (s instanceof AssignmentNode) {
+			AssignmentNode a = (AssignmentNode) s;
+			a.exp = expression(a.exp);
+			out.add(a);
+		} else if (s instanceof LoopNode) {
+			block(((LoopNode) s).block);
+			out.add(s);
+		} else if (s instanceof WhileNode) {
+			whileLoop((WhileNode) s, out);
+		} else if (s instanceof IFNode) {
+			ifStatement((IFNode) s, out);
+		} else if (s instanceof BlockNode) {
+			out.add(block((BlockNode) s));
+		} else {
+			out.add(s); // actions
+		}
+	}
+
+	private void whileLoop(WhileNode w, List<StatementNode> out) {
+		String before = w.condition.toString();
+		w.condition = condition(w.condition);
+		Boolean c = constant(w.condition);
+		if (c == Boolean.FALSE) {
+			report.add("removed while(" + before + "), it never runs");
+		} else if (c == Boolean.TRUE) {
+			report.add("while(" + before + ") always holds, replaced by loop");
+			out.add(new LoopNode(block(w.block)));
+		} else {
+			block(w.block);
+			out.add(w);
+		}
+	}
+
+	/** An if takes the first branch whose condition holds, see IFNode.execute. */
+	private void ifStatement(IFNode i, List<StatementNode> out) {
+		String before = i.condition.toString();
+		i.condition = condition(i.condition);
+		block(i.mainBlock);
+		if (i.elseBlock != null)
+			block(i.elseBlock);
+		if (i.elifs.length > 0)
+			elifs(i);
+
+		Boolean c = constant(i.condition);
+		if (c == Boolean.TRUE) {
+			report.add("if(" + before + ") always holds, kept only its block");
+			out.addAll(i.mainBlock.getStatements());
+		} else if (c == Boolean.FALSE) {
+			if (i.elifs.length > 0) {
+				report.add("if(" + before + ") never holds, its first elif takes its place");
+				IFNode next = new IFNode(i.elifs[0].condition, i.elifs[0].block);
+				for (int k = 1; k < i.elifs.length; k++)
+					next.addElif(i.elifs[k].condition, i.elifs[k].block);
+				next.setElseBlock(i.elseBlock);
+				ifStatement(next, out);
+			} else if (i.elseBlock == null) {
+				report.add("removed if(" + before + "), it never runs");
+			} else {
+				report.add("if(" + before + ") never holds, kept only its else block");
+				out.addAll(i.elseBlock.getStatements());
+			}
+		} else {
+			out.add(i);
+		}
+	}
+
+	/**
+	 * Simplifies the elif conditions and removes the elifs that can never be
+	 * taken, and the else block if an elif always is.
+	 */
+	private void elifs(IFNode i) {
+		List<IFNode.Elif> kept = new ArrayList<IFNode.Elif>();
+		for (int k = 0; k < i.elifs.length; k++) {
+			IFNode.Elif e = i.elifs[k];
+			String before = e.condition.toString();
+			e.condition = condition(e.condition);
+			block(e.block);
+			Boolean c = constant(e.condition);
+			if (c == Boolean.FALSE) {
+				report.add("removed elif(" + before + "), it never holds");
+				continue;
+			}
+			kept.add(e);
+			if (c == Boolean.TRUE) {
+				for (int rest = k + 1; rest < i.elifs.length; rest++)
+					report.add("removed elif(" + i.elifs[rest].condition + "), an earlier elif always holds");
+				if (i.elseBlock != null) {
+					report.add("removed the else block of if(" + i.condition + "), an elif always holds");
+					i.elseBlock = null;
+				}
+				break;
+			}
+		}
+		i.elifs = kept.toArray(new IFNode.Elif[kept.size()]);
+	}
+
+	// Conditions
+
+	/** Simplifies the condition, reporting it if it changed. */
+	private ConditionalNode condition(ConditionalNode c) {
+		String before = c.toString();
+		ConditionalNode after = simplify(c);
+		Boolean k = constant(after);
+		if (k != null && !before.equals(after.toString()))
+			report.add(before + " is always " + k);
+		else if (!before.equals(after.toString()))
+			report.add(before + " is " + after);
+		return after;
+	}
+
+	private ConditionalNode simplify(ConditionalNode c) {
+		if (c instanceof NotNode) {
+			NotNode n = (NotNode) c;
+			if (n.cond instanceof NotNode)
+				return simplify(((NotNode) n.cond).cond);
+			n.cond = simplify(n.cond);
+			Boolean k = constant(n.cond);
+			return k == null ? n : constant(!k);
+		} else if (c instanceof AndNode) {
+			AndNode a = (AndNode) c;
+			a.left = simplify(a.left);
+			a.right = simplify(a.right);
+			Boolean l = constant(a.left), r = constant(a.right);
+			if (l == Boolean.FALSE)
+				return a.left; // the right is never evaluated
+			if (l == Boolean.TRUE)
+				return a.right;
+			if (r == Boolean.TRUE)
+				return a.left;
+			if (r == Boolean.FALSE && pureCondition(a.left))
+				return a.right;
+			return a;
+		} else if (c instanceof OrNode) {
+			OrNode o = (OrNode) c;
+			o.left = simplify(o.left);
+			o.right = simplify(o.right);
+			Boolean l = constant(o.left), r = constant(o.right);
+			if (l == Boolean.TRUE)
+				return o.left;
+			if (l == Boolean.FALSE)
+				return o.right;
+			if (r == Boolean.FALSE)
+				return o.left;
+			if (r == Boolean.TRUE && pureCondition(o.left))
+				return o.right;
+			return o;
+		} else if (c instanceof GreaterThanNode) {
+			GreaterThanNode g = (GreaterThanNode) c;
+			g.left = fold(g.left);
+			g.right = fold(g.right);
+			return pure(g.left) && same(g.left, g.right) ? constant(false) : g;
+		} else if (c instanceof LessThanNode) {
+			LessThanNode l = (LessThanNode) c;
+			l.left = fold(l.left);
+			l.right = fold(l.right);
+			return pure(l.left) && same(l.left, l.right) ? constant(false) : l;
+		} else if (c instanceof EqualsNode) {
+			EqualsNode e = (EqualsNode) c;
+			e.left = fold(e.left);
+			e.right = fold(e.right);
+			return pure(e.left) && same(e.left, e.right) ? constant(true) : e;
+		}
+		return c;
+	}
+
+	/** A condition that is always true or false. */
+	private static ConditionalNode constant(boolean value) {
+		return new EqualsNode(new NumberNode(0), new NumberNode(value ? 0 : 1));
+	}
+
+	/**
+	 * The value of a condition that is always the same, otherwise null. Only
+	 * comparisons of two numbers are constant, which is what constant(boolean)
+	 * makes and what simplify folds a constant condition to.
+	 */
+	private static Boolean constant(ConditionalNode c) {
+		ExpressionNode left, right;
+		if (c instanceof GreaterThanNode) {
+			left = ((GreaterThanNode) c).left;
+			right = ((GreaterThanNode) c).right;
+		} else if (c instanceof LessThanNode) {
+			left = ((LessThanNode) c).left;
+			right = ((LessThanNode) c).right;
+		} else if (c instanceof EqualsNode) {
+			left = ((EqualsNode) c).left;
+			right = ((EqualsNode) c).right;
+		} else {
+			return null;
+		}
+		if (!(left instanceof NumberNode) || !(right instanceof NumberNode))
+			return null;
+		return c.evaluate(null); // no sensors or variables to read
+	}
+
+	/** Whether evaluating the condition reads no sensors and can't fail. */
+	private static boolean pureCondition(ConditionalNode c) {
+		if (c instanceof NotNode)
+			return pureCondition(((NotNode) c).cond);
+		if (c instanceof AndNode)
+			return pureCondition(((AndNode) c).left) && pureCondition(((AndNode) c).right);
+		if (c instanceof OrNode)
+			return pureCondition(((OrNode) c).left) && pureCondition(((OrNode) c).right);
+		if (c instanceof GreaterThanNode)
+			return pure(((GreaterThanNode) c).left) && pure(((GreaterThanNode) c).right);
+		if (c instanceof LessThanNode)
+			return pure(((LessThanNode) c).left) && pure(((LessThanNode) c).right);
+		if (c instanceof EqualsNode)
+			return pure(((EqualsNode) c).left) && pure(((EqualsNode) c).right);
+		return false;
+	}
+
+	// Expressions
+
+	/** Folds the expression, reporting it if it changed. */
+	private ExpressionNode expression(ExpressionNode e) {
+		ExpressionNode after = fold(e);
+		if (after != e)
+			report.add(e + " is " + after);
+		return after;
+	}
+
+	/**
+	 * Folds arithmetic on numbers to a number, apart from division by zero
+	 * which is left to fail when the program runs.
+	 */
+	private ExpressionNode fold(ExpressionNode e) {
+		if (e instanceof OPNodeExpr) {
+			OPNodeExpr op = (OPNodeExpr) e;
+			op.left = fold(op.left);
+			op.right = fold(op.right);
+			if (op.left instanceof NumberNode && op.right instanceof NumberNode
+					&& !(op.op instanceof DivNode && ((NumberNode) op.right).num == 0))
+				return new NumberNode(op.evaluate(null));
+		} else if (e instanceof BarrelLRNode) {
+			BarrelLRNode b = (BarrelLRNode) e;
+			if (b.exp != null)
+				b.exp = fold(b.exp);
+		} else if (e instanceof BarrelFBNode) {
+			BarrelFBNode b = (BarrelFBNode) e;
+			if (b.exp != null)
+				b.exp = fold(b.exp);
+		}
+		return e;
+	}
+
+	/** Whether evaluating the expression reads no sensors and can't fail. */
+	static boolean pure(ExpressionNode e) {
+		if (e instanceof NumberNode || e instanceof VariableNode)
+			return true;
+		if (e instanceof OPNodeExpr) {
+			OPNodeExpr op = (OPNodeExpr) e;
+			if (op.op instanceof DivNode && !(op.right instanceof NumberNode && ((NumberNode) op.right).num != 0))
+				return false;
+			return pure(op.left) && pure(op.right);
+		}
+		return false;
+	}
+
+	/** Whether two pure expressions always have the same value. */
+	static boolean same(ExpressionNode a, ExpressionNode b) {
+		if (a instanceof NumberNode && b instanceof NumberNode)
+			return ((NumberNode) a).num == ((NumberNode) b).num;
+		if (a instanceof VariableNode && b instanceof VariableNode)
+			return ((VariableNode) a).slot == ((VariableNode) b).slot;
+		if (a instanceof OPNodeExpr && b instanceof OPNodeExpr) {
+			OPNodeExpr x = (OPNodeExpr) a, y = (OPNodeExpr) b;
+			return x.op.getClass() == y.op.getClass() && same(x.left, y.left) && same(x.right, y.right);
+		}
+		return false;
+	}
+}
@@ -0,0 +1,637 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A program lowered to a flat int array of register machine instructions, and
+ * the loop that runs it. Each instruction is an opcode followed by its
+ * operands: registers, constants or jump targets (absolute indexes into the
+ * code). Variables have the registers numbered by their slots, and the
+ * temporaries of expressions the registers after them.
+ *
+ * Sensors and actions are single instructions (the sensors read through a
+ * SensorCache, as the tree's do), and move(n) and wait(n) keep their count in
+ * the state rather than in a loop of instructions, so all the state of a
+ * running program is its State: a pc, a repeat count and the registers. That
+ * can be stepped one action at a time, and the code itself written out with
+ * encode.
+ *
+ * The instructions evaluate the same sensors in the same order as the tree,
+ * and loops charge the robot the same steps for InstructionMeter, so a
+ * program behaves the same either way.
+ */
+class RegisterVM implements RobotProgramNode {
+
+	// Opcodes
+	static final int HALT = 0, CONST = 1, COPY = 2, ADD = 3, SUB = 4, MUL = 5, DIV = 6, FUEL = 7, OPPLR = 8,
+			OPPFB = 9, NUMBARRELS = 10, WALLDIST = 11, BARRELLR = 12, BARRELFB = 13, BARRELLR_N = 14,
+			BARRELFB_N = 15, JUMP = 16, JEQ = 17, JNE = 18, JLT = 19, JGE = 20, JGT = 21, JLE = 22, MOVE = 23,
+			WAIT = 24, TURNL = 25, TURNR = 26, TURNAROUND = 27, TAKEFUEL = 28, SHIELDON = 29, SHIELDOFF = 30,
+			MOVE_N = 31, WAIT_N = 32, CHARGE = 33;
+
+	private static final String[] NAMES = { "halt", "const", "copy", "add", "sub", "mul", "div", "fuel", "opplr",
+			"oppfb", "numbarrels", "walldist", "barrellr", "barrelfb", "barrellr", "barrelfb", "jump", "jeq", "jne",
+			"jlt", "jge", "jgt", "jle", "move", "wait", "turnl", "turnr", "turnaround", "takefuel", "shieldon",
+			"shieldoff", "move", "wait", "charge" };
+
+	/** The operands of each opcode: r a register, k a constant, t a jump target */
+	private static final String[] OPERANDS = { "", "rk", "rr", "rrr", "rrr", "rrr", "rrr", "r", "r", "r", "r", "r",
+			"r", "r", "rr", "rr", "t", "rrt", "rrt", "rrt", "rrt", "rrt", "rrt", "", "", "", "", "", "", "", "", "r",
+			"r", "k" };
+
+	final int[] code;
+	final int registers;
+
+	/** The variable names by register */
+	final String[] variables;
+
+	RegisterVM(int[] code, int registers, String[] variables) {
+		this.code = code;
+		this.registers = registers;
+		this.variables = variables;
+	}
+
+	/**
+	 * Lowers the program to instructions.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the program contains a node the VM has no instruction for
+	 */
+	static RegisterVM compile(ProgramNode program) {
+		Assembler a = new Assembler(program.variables.length);
+		for (StatementNode s : program.getStatements())
+			a.statement(s);
+		a.emit(HALT);
+		return new RegisterVM(Arrays.copyOf(a.code, a.length), a.maxRegisters, program.variables);
+	}
+
+	/** Runs the program to the end on the robot, in a new state. */
+	@Override
+	public void execute(Robot robot) {
+		new State().run(robot);
+	}
+
+	/** A new state, at the start of the program with all registers 0. */
+	State start() {
+		return new State();
+	}
+
+	/**
+	 * The state of one run of the program. Not thread safe; one robot steps it.
+	 */
+	class State {
+
+		private int pc = 0;
+
+		/** The moves or waits left of the current move(n) or wait(n), or -1 */
+		private int repeat = -1;
+
+		private final int[] r = new int[registers];
+
+		private final SensorCache sensors = new SensorCache();
+
+		/** Whether the program has run to the end. */
+		boolean halted() {
+			return code[pc] == HALT;
+		}
+
+		/** Runs to the end of the program. */
+		void run(Robot robot) {
+			execute(robot, Integer.MAX_VALUE);
+		}
+
+		/**
+		 * Runs until the program has taken one action or reached its end.
+		 * Returns false once it has ended.
+		 */
+		boolean step(Robot robot) {
+			execute(robot, 1);
+			return !halted();
+		}
+
+		/** Runs until the given number of actions have been taken or the program ends. */
+		private void execute(Robot robot, int actions) {
+			final int[] code = RegisterVM.this.code;
+			final int[] r = this.r;
+			final SensorCache sensors = this.sensors;
+			int pc = this.pc;
+			try {
+				while (true) {
+					switch (code[pc]) {
+					case HALT:
+						return;
+					case CONST:
+						r[code[pc + 1]] = code[pc + 2];
+						pc += 3;
+						break;
+					case COPY:
+						r[code[pc + 1]] = r[code[pc + 2]];
+						pc += 3;
+						break;
+					case ADD:
+						r[code[pc + 1]] = r[code[pc + 2]] + r[code[pc + 3]];
+						pc += 4;
+						break;
+					case SUB:
+						r[code[pc + 1]] = r[code[pc + 2]] - r[code[pc + 3]];
+						pc += 4;
+						break;
+					case MUL:
+						r[code[pc + 1]] = r[code[pc + 2]] * r[code[pc + 3]];
+						pc += 4;
+						break;
+					case DIV:
+						r[code[pc + 1]] = r[code[pc + 2]] / r[code[pc + 3]];
+						pc += 4;
+						break;
+					case FUEL:
+						r[code[pc + 1]] = sensors.read(robot, SensorCache.FUEL);
+						pc += 2;
+						break;
+					case OPPLR:
+						r[code[pc + 1]] = sensors.read(robot, SensorCache.OPPLR);
+						pc += 2;
+						break;
+					case OPPFB:
+						r[code[pc + 1]] = sensors.read(robot, SensorCache.OPPFB);
+						pc += 2;
+						break;
+					case NUMBARRELS:
+						r[code[pc + 1]] = sensors.read(robot, SensorCache.NUMBARRELS);
+						pc += 2;
+						break;
+					case WALLDIST:
+						r[code[pc + 1]] = sensors.read(robot, SensorCache.WALLDIST);
+						pc += 2;
+						break;
+					case BARRELLR:
+						r[code[pc + 1]] = sensors.barrelLR(robot, 0);
+						pc += 2;
+						break;
+					case BARRELFB:
+						r[code[pc + 1]] = sensors.barrelFB(robot, 0);
+						pc += 2;
+						break;
+					case BARRELLR_N:
+						// the nth closest, unless the robot is on the closest (as BarrelLRNode)
+						r[code[pc + 1]] = sensors.barrelLR(robot, onClosestBarrel(robot) ? 0 : r[code[pc + 2]]);
+						pc += 3;
+						break;
+					case BARRELFB_N:
+						r[code[pc + 1]] = sensors.barrelFB(robot, onClosestBarrel(robot) ? 0 : r[code[pc + 2]]);
+						pc += 3;
+						break;
+					case JUMP:
+						pc = code[pc + 1];
+						break;
+					case CHARGE:
+						pc += 2; // past it first, in case the robot waits out its turn and is stepped again
+						if (robot.charge(code[pc - 1]) && --actions == 0)
+							return; // it waited out its turn
+						break;
+					case JEQ:
+						pc = r[code[pc + 1]] == r[code[pc + 2]] ? code[pc + 3] : pc + 4;
+						break;
+					case JNE:
+						pc = r[code[pc + 1]] != r[code[pc + 2]] ? code[pc + 3] : pc + 4;
+						break;
+					case JLT:
+						pc = r[code[pc + 1]] < r[code[pc + 2]] ? code[pc + 3] : pc + 4;
+						break;
+					case JGE:
+						pc = r[code[pc + 1]] >= r[code[pc + 2]] ? code[pc + 3] : pc + 4;
+						break;
+					case JGT:
+						pc = r[code[pc + 1]] > r[code[pc + 2]] ? code[pc + 3] : pc + 4;
+						break;
+					case JLE:
+						pc = r[code[pc + 1]] <= r[code[pc + 2]] ? code[pc + 3] : pc + 4;
+						break;
+					case MOVE_N:
+					case WAIT_N:
+						if (repeat < 0)
+							repeat = r[code[pc + 1]];
+						if (repeat <= 0) {
+							repeat = -1;
+							pc += 2;
+							break;
+						}
+						repeat--;
+						int at = pc;
+						if (repeat == 0) {
+							repeat = -1;
+							pc += 2;
+						}
+						if (code[at] == MOVE_N)
+							robot.move();
+						else
+							robot.idleWait();
+						if (--actions == 0)
+							return;
+						break;
+					default:
+						// the single actions
+						int opcode = code[pc++];
+						action(robot, opcode);
+						if (--actions == 0)
+							return;
+					}
+				}
+			} finally {
+				this.pc = pc;
+			}
+		}
+
+		private boolean onClosestBarrel(Robot robot) {
+			return sensors.barrelLR(robot, 0) == 0 && sensors.barrelFB(robot, 0) == 0;
+		}
+	}
+
+
+	private static void action(Robot robot, int opcode) {
+		switch (opcode) {
+		case MOVE:
+			robot.move();
+			break;
+		case WAIT:
+			robot.idleWait();
+			break;
+		case TURNL:
+			robot.turnLeft();
+			break;
+		case TURNR:
+			robot.turnRight();
+			break;
+		case TURNAROUND:
+			robot.turnAround();
+			break;
+		case TAKEFUEL:
+			robot.takeFuel();
+			break;
+		case SHIELDON:
+			robot.setShield(true);
+			break;
+		case SHIELDOFF:
+			robot.setShield(false);
+			break;
+		default:
+			throw new IllegalStateException("Bad opcode " + opcode);
+		}
+	}
+
+	/**
+	 * Checks the code is well formed: known opcodes with all their operands,
+	 * registers in range, jumps to the start of instructions and no way to run
+	 * off the end. Code read by decode is checked before it is run.
+	 */
+	boolean validate() {
+		boolean[] starts = new boolean[code.length];
+		int last = -1;
+		for (int pc = 0; pc < code.length; pc += 1 + OPERANDS[code[pc]].length()) {
+			if (code[pc] < 0 || code[pc] >= OPERANDS.length || pc + OPERANDS[code[pc]].length() >= code.length)
+				return false;
+			starts[pc] = true;
+			last = pc;
+		}
+		if (last < 0 || (code[last] != HALT && code[last] != JUMP))
+			return false;
+		for (int pc = 0; pc < code.length; pc += 1 + OPERANDS[code[pc]].length()) {
+			String operands = OPERANDS[code[pc]];
+			for (int i = 0; i < operands.length(); i++) {
+				int v = code[pc + 1 + i];
+				if (operands.charAt(i) == 'r' && (v < 0 || v >= registers))
+					return false;
+				if (operands.charAt(i) == 't' && (v < 0 || v >= code.length || !starts[v]))
+					return false;
+			}
+		}
+		return variables.length <= registers;
+	}
+
+	/** The instructions, one per line. */
+	String disassemble() {
+		StringBuilder sb = new StringBuilder();
+		for (int pc = 0; pc < code.length; pc += 1 + OPERANDS[code[pc]].length()) {
+			sb.append(String.format("%4d  %-10s", pc, NAMES[code[pc]]));
+			String operands = OPERANDS[code[pc]];
+			for (int i = 0; i < operands.length(); i++) {
+				int v = code[pc + 1 + i];
+				sb.append(i == 0 ? " " : ", ");
+				if (operands.charAt(i) == 'r')
+					sb.append(v < variables.length ? variables[v] : "r" + v);
+				else if (operands.charAt(i) == 't')
+					sb.append('@').append(v);
+				else
+					sb.append(v);
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return disassemble();
+	}
+
+	// Serialization
+
+	/** The code, register count and variable names as bytes. */
+	byte[] encode() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(variables.length);
+			for (String v : variables)
+				out.writeUTF(v);
+			out.writeInt(registers);
+			out.writeInt(code.length);
+			for (int c : code)
+				out.writeInt(c);
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // can't happen, writing to memory
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Reads code written by encode.
+	 *
+	 * @throws IOException
+	 *             if the bytes are not complete, valid code
+	 */
+	static RegisterVM decode(byte[] data) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		try {
+			String[] variables = new String[count(in, data.length)];
+			for (int i = 0; i < variables.length; i++)
+				variables[i] = in.readUTF();
+			int registers = in.readInt();
+			int[] code = new int[count(in, data.length / 4)];
+			for (int i = 0; i < code.length; i++)
+				code[i] = in.readInt();
+			if (in.available() != 0)
+				throw new IOException("Trailing bytes after code");
+			RegisterVM vm = new RegisterVM(code, registers, variables);
+			if (!vm.validate())
+				throw new IOException("Invalid code");
+			return vm;
+		} catch (EOFException e) {
+			throw new IOException("Truncated code", e);
+		}
+	}
+
+	private static int count(DataInputStream in, int max) throws IOException {
+		int n = in.readInt();
+		if (n < 0 || n > max)
+			throw new IOException("Bad count " + n);
+		return n;
+	}
+
+	// Lowering
+
+	/**
+	 * Emits the instructions for the tree, in the same shape as
+	 * ProgramCompiler does bytecode. Temporaries are allocated as a stack
+	 * above the variables and released once the instruction using them is
+	 * emitted.
+	 */
+	private static class Assembler {
+
+		private int[] code = new int[64];
+		private int length = 0;
+		private int nextRegister, maxRegisters;
+
+		Assembler(int variables) {
+			nextRegister = maxRegisters = variables;
+		}
+
+		private void emit(int... words) {
+			if (length + words.length > code.length)
+				code = Arrays.copyOf(code, Math.max(code.length * 2, length + words.length));
+			System.arraycopy(words, 0, code, length, words.length);
+			length += words.length;
+		}
+
+		/** Emits a jump with its target left to fix up, returning where the target goes. */
+		private int jump(int... words) {
+			emit(words);
+			return length - 1;
+		}
+
+		private void fixup(List<Integer> jumps) {
+			for (int at : jumps)
+				code[at] = length;
+			jumps.clear();
+		}
+
+		private int temporary() {
+			maxRegisters = Math.max(maxRegisters, nextRegister + 1);
+			return nextRegister++;
+		}
+
+		// Statements
+
+		void statement(StatementNode s) {
+			if (s instanceof MoveNode)
+				repeat(((MoveNode) s).exp, MOVE, MOVE_N);
+			else if (s instanceof WaitNode)
+				repeat(((WaitNode) s).exp, WAIT, WAIT_N);
+			else if (s instanceof TurnLNode)
+				emit(TURNL);
+			else if (s instanceof TurnRNode)
+				emit(TURNR);
+			else if (s instanceof TurnAroundNode)
+				emit(TURNAROUND);
+			else if (s instanceof TakeFuelNode)
+				emit(TAKEFUEL);
+			else if (s instanceof ShieldOnNode)
+				emit(SHIELDON);
+			else if (s instanceof ShielfOffNode)
+				emit(SHIELDOFF);
+			else if (s instanceof LoopNode) {
+				int top = length;
+				block(((LoopNode) s).block);
+				emit(CHARGE, InstructionMeter.loopCost(s));
+				emit(JUMP, top);
+			} else if (s instanceof WhileNode) {
+				WhileNode w = (WhileNode) s;
+				List<Integer> end = new ArrayList<Integer>();
+				int test = length;
+				jumpIfFalse(w.condition, end);
+				block(w.block);
+				emit(CHARGE, InstructionMeter.loopCost(w));
+				emit(JUMP, test);
+				fixup(end);
+			} else if (s instanceof IFNode)
+				ifStatement((IFNode) s);
+			else if (s instanceof AssignmentNode) {
+				AssignmentNode a = (AssignmentNode) s;
+				expression(a.exp, a.var.slot);
+			} else if (s instanceof BlockNode)
+				block((BlockNode) s);
+			else
+				throw new IllegalArgumentException("No instruction for statement " + s.getClass().getName());
+		}
+
+		private void block(BlockNode block) {
+			for (StatementNode s : block.getStatements())
+				statement(s);
+		}
+
+		private void repeat(ExpressionNode count, int once, int times) {
+			if (count == null) {
+				emit(once);
+				return;
+			}
+			int saved = nextRegister;
+			emit(times, value(count));
+			nextRegister = saved;
+		}
+
+		/** The first branch whose condition holds, as IFNode.execute */
+		private void ifStatement(IFNode i) {
+			List<Integer> end = new ArrayList<Integer>(), next = new ArrayList<Integer>();
+			jumpIfFalse(i.condition, next);
+			block(i.mainBlock);
+			end.add(jump(JUMP, 0));
+			fixup(next);
+			for (IFNode.Elif e : i.elifs) {
+				jumpIfFalse(e.condition, next);
+				block(e.block);
+				end.add(jump(JUMP, 0));
+				fixup(next);
+			}
+			if (i.elseBlock != null)
+				block(i.elseBlock);
+			fixup(end);
+		}
+
+		// Conditions
+
+		private void jumpIfFalse(ConditionalNode c, List<Integer> target) {
+			if (c instanceof AndNode) {
+				jumpIfFalse(((AndNode) c).left, target);
+				jumpIfFalse(((AndNode) c).right, target);
+			} else if (c instanceof OrNode) {
+				List<Integer> isTrue = new ArrayList<Integer>();
+				jumpIfTrue(((OrNode) c).left, isTrue);
+				jumpIfFalse(((OrNode) c).right, target);
+				fixup(isTrue);
+			} else if (c instanceof NotNode) {
+				jumpIfTrue(((NotNode) c).cond, target);
+			} else if (c instanceof GreaterThanNode) {
+				compare(((GreaterThanNode) c).left, ((GreaterThanNode) c).right, JLE, target);
+			} else if (c instanceof LessThanNode) {
+				compare(((LessThanNode) c).left, ((LessThanNode) c).right, JGE, target);
+			} else if (c instanceof EqualsNode) {
+				compare(((EqualsNode) c).left, ((EqualsNode) c).right, JNE, target);
+			} else {
+				throw new IllegalArgumentException("No instruction for condition " + c.getClass().getName());
+			}
+		}
+
+		private void jumpIfTrue(ConditionalNode c, List<Integer> target) {
+			if (c instanceof AndNode) {
+				List<Integer> isFalse = new ArrayList<Integer>();
+				jumpIfFalse(((AndNode) c).left, isFalse);
+				jumpIfTrue(((AndNode) c).right, target);
+				fixup(isFalse);
+			} else if (c instanceof OrNode) {
+				jumpIfTrue(((OrNode) c).left, target);
+				jumpIfTrue(((OrNode) c).right, target);
+			} else if (c instanceof NotNode) {
+				jumpIfFalse(((NotNode) c).cond, target);
+			} else if (c instanceof GreaterThanNode) {
+				compare(((GreaterThanNode) c).left, ((GreaterThanNode) c).right, JGT, target);
+			} else if (c instanceof LessThanNode) {
+				compare(((LessThanNode) c).left, ((LessThanNode) c).right, JLT, target);
+			} else if (c instanceof EqualsNode) {
+				compare(((EqualsNode) c).left, ((EqualsNode) c).right, JEQ, target);
+			} else {
+				throw new IllegalArgumentException("No instruction for condition " + c.getClass().getName());
+			}
+		}
+
+		private void compare(ExpressionNode left, ExpressionNode right, int opcode, List<Integer> target) {
+			int saved = nextRegister;
+			int a = value(left);
+			int b = value(right);
+			target.add(jump(opcode, a, b, 0));
+			nextRegister = saved;
+		}
+
+		// Expressions
+
+		/**
+		 * The register holding the value of the expression: a variable's own
+		 * register, or a new temporary it is computed into.
+		 */
+		private int value(ExpressionNode e) {
+			if (e instanceof VariableNode)
+				return ((VariableNode) e).slot;
+			int t = temporary();
+			expression(e, t);
+			return t;
+		}
+
+		/** Computes the expression into the register, which is written last. */
+		private void expression(ExpressionNode e, int target) {
+			if (e instanceof NumberNode) {
+				emit(CONST, target, ((NumberNode) e).num);
+			} else if (e instanceof VariableNode) {
+				if (((VariableNode) e).slot != target)
+					emit(COPY, target, ((VariableNode) e).slot);
+			} else if (e instanceof OPNodeExpr) {
+				OPNodeExpr op = (OPNodeExpr) e;
+				int opcode;
+				if (op.op instanceof AddNode)
+					opcode = ADD;
+				else if (op.op instanceof SubNode)
+					opcode = SUB;
+				else if (op.op instanceof MultNode)
+					opcode = MUL;
+				else if (op.op instanceof DivNode)
+					opcode = DIV;
+				else
+					throw new IllegalArgumentException("No instruction for operator " + op.op);
+				int saved = nextRegister;
+				int a = value(op.left);
+				int b = value(op.right);
+				emit(opcode, target, a, b);
+				nextRegister = saved;
+			} else if (e instanceof FuelLeftNode) {
+				emit(FUEL, target);
+			} else if (e instanceof OppLRNode) {
+				emit(OPPLR, target);
+			} else if (e instanceof OppFBNode) {
+				emit(OPPFB, target);
+			} else if (e instanceof NumBarrelsNode) {
+				emit(NUMBARRELS, target);
+			} else if (e instanceof WallDistNode) {
+				emit(WALLDIST, target);
+			} else if (e instanceof BarrelLRNode) {
+				barrel(((BarrelLRNode) e).exp, BARRELLR, BARRELLR_N, target);
+			} else if (e instanceof BarrelFBNode) {
+				barrel(((BarrelFBNode) e).exp, BARRELFB, BARRELFB_N, target);
+			} else {
+				throw new IllegalArgumentException("No instruction for expression " + e.getClass().getName());
+			}
+		}
+
+		private void barrel(ExpressionNode n, int closest, int nth, int target) {
+			if (n == null) {
+				emit(closest, target);
+				return;
+			}
+			int saved = nextRegister;
+			emit(nth, target, value(n));
+			nextRegister = saved;
+		}
+	}
+}
@@ -21,7 +21,7 @@ public class RoboGame extends JFrame {
 	private WorldComponent worldComp = new WorldComponent();
 	private File code1, code2;
 
-	public static boolean debugDisplay = true;
+	public static volatile boolean debugDisplay = true;
 
 	public RoboGame() {
 		super("Robots");
@@ -8,9 +8,7 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.imageio.ImageIO;
 
@@ -224,8 +222,8 @@ public class Robot {
 	public int numBarrels() {
 		if (cancelled)
 			throw new RobotInterruptedException();
-		debug("numBarrels = " + barrels.size());
-		return barrels.size();
+		debug("numBarrels = " + barrels.length);
+		return barrels.length;
 	}
 
 	/**
@@ -264,7 +262,7 @@ public class Robot {
 	public int getBarrelLR(int n) {
 		if (cancelled)
 			throw new RobotInterruptedException();
-		int val = (n >= barrels.size()) ? INFINITY : barrels.get(n).x;
+		int val = (n >= barrels.length) ? INFINITY : barrelX(barrels[n]);
 		debug(((n == 0) ? "" : (n + "th")) + "closestBarrelLR = " + ((val == INFINITY) ? "INFINITY" : "" + val));
 		return val;
 	}
@@ -279,7 +277,7 @@ public class Robot {
 	public int getBarrelFB(int n) {
 		if (cancelled)
 			throw new RobotInterruptedException();
-		int val = (n >= barrels.size()) ? INFINITY : barrels.get(n).y;
+		int val = (n >= barrels.length) ? INFINITY : barrelY(barrels[n]);
 		debug(((n == 0) ? "" : (n + "th")) + "closestBarrelFB = " + ((val == INFINITY) ? "INFINITY" : "" + val));
 		return val;
 	}
@@ -317,13 +315,53 @@ public class Robot {
 
 	private World world;
 	private Point otherRobotPos;
-	private List<Point> barrels = new ArrayList<Point>();
+	/** The barrels relative to the robot, closest first, packed by relativeBarrel */
+	private int[] barrels = new int[0];
 	private RobotProgramNode program;
 
+	/** The state of the running program, private to this robot */
+	ExecutionContext context;
+
+	/**
+	 * Bumped each time the sensor readings may change, see SensorCache.
+	 * updatePending must write the new state (position, fuel, barrels) first,
+	 * then bump the epoch, and only then clear currentAction, which hands the
+	 * turn back: a robot that sees its action done must never find its old
+	 * readings still current.
+	 */
+	private volatile int epoch;
+
+	/** The steps allowed per turn, 0 for no limit, see InstructionMeter */
+	private int budget = InstructionMeter.BUDGET;
+
+	/** The steps the program may still take before it next acts */
+	private int steps = InstructionMeter.steps(budget);
+
+	/** Whether actions return at once rather than wait for the tick, see World.startStepped */
+	private boolean stepped;
+
+	/** Whether readState is waiting for the pending action to happen, when stepped */
+	private boolean stateToRead;
+
 	private boolean shield, dead, finished, cancelled;
+
+	/** Whether the robot prints nothing, see setQuiet */
+	private boolean quiet;
+
+	/** What the program threw, see fail */
+	private volatile RuntimeException failure;
+
 	private int fuel = 100, targetFuel;
 	private int x, y, dir, targetX, targetY, targetDir;
-	private int currentAction;
+	/**
+	 * Set by an action, and back to 0 by updatePending once the action has
+	 * happened. Cleared last, after the epoch is bumped (see epoch): clearing it
+	 * hands the turn back to the robot's program.
+	 */
+	private volatile int currentAction;
+
+	/** The thread blocked until the pending action has happened, see processFuelAndBlock */
+	private volatile Thread waiting;
 	private String colour;
 	private BufferedImage robotImage1, robotImage2, shieldImage;
 	private boolean noWait = false;
@@ -339,6 +377,13 @@ public class Robot {
 		dir = (y < World.SIZE / 2) ? DIR_SOUTH : DIR_NORTH;
 		targetDir = dir;
 		targetFuel = fuel;
+	}
+
+	/**
+	 * Loads the images the first time the robot is drawn, so robots that are
+	 * never displayed (printing, benchmarks) don't read them.
+	 */
+	private void loadImages() {
 		try {
 			robotImage1 = ImageIO.read(new File("assets/robot_" + colour + "_1.png"));
 			robotImage2 = ImageIO.read(new File("assets/robot_" + colour + "_2.png"));
@@ -354,6 +399,12 @@ public class Robot {
 	 * Encodes the state of the robot, used for automarking.
 	 */
 	public void readState() {
+		if (quiet)
+			return;
+		if (stepped && currentAction != 0) {
+			stateToRead = true; // the action happens at the next tick, see updatePending
+			return;
+		}
 		String state = "x=" + x + " y=" + y + " dir=" + dir + " fuel=" + fuel + " shield=" + shield;
 		history.add(state);
                 if (noWait)
@@ -368,6 +419,51 @@ public class Robot {
 		program = prog;
 	}
 
+	RobotProgramNode getProgram() {
+		return program;
+	}
+
+	/**
+	 * Makes actions return as soon as they are chosen, instead of blocking
+	 * the program until the world's next tick has carried them out. The
+	 * program must then be stepped one action per tick, as World does for
+	 * stepped robots.
+	 */
+	void setStepped(boolean stepped) {
+		this.stepped = stepped;
+	}
+
+	/** Sets the steps allowed per turn, 0 for no limit, see InstructionMeter. */
+	void setStepBudget(int budget) {
+		this.budget = budget;
+		steps = InstructionMeter.steps(budget);
+	}
+
+	boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Stops the robot printing (debug messages, states and siphoning) or
+	 * keeping its history, for matches run without anyone watching.
+	 */
+	void setQuiet(boolean quiet) {
+		this.quiet = quiet;
+	}
+
+	/**
+	 * The fuel the robot will have once its pending action has happened. It
+	 * has run out, as the GUI shows when drawing it, once this is 0 or less.
+	 */
+	int fuelAfterTurn() {
+		return targetFuel;
+	}
+
+	/** Whether the robot has chosen an action that the next tick will carry out. */
+	boolean actionPending() {
+		return currentAction != 0;
+	}
+
 	/**
 	 * Start this robot running. If it has a valid program,, then executes the
 	 * program, passing in the robot. Otherwise, calls the default program.
@@ -403,6 +499,23 @@ public class Robot {
 			updatePending();
 	}
 
+	/**
+	 * Called by the World when the robot's program throws, e.g. dividing by
+	 * zero, before finishing the robot as if its program had ended. The robot
+	 * runs out of fuel, so it loses.
+	 */
+	void fail(RuntimeException e) {
+		failure = e;
+		if (!quiet)
+			System.out.println(colour + " robot's program failed: " + e);
+		targetFuel = 0;
+	}
+
+	/** The exception the program failed with, or null if it hasn't. */
+	RuntimeException getFailure() {
+		return failure;
+	}
+
 	/**
 	 * Called by the GUI only.
 	 * 
@@ -410,6 +523,8 @@ public class Robot {
 	 * @param time
 	 */
 	public void draw(Graphics2D g2d, double time) {
+		if (robotImage1 == null)
+			loadImages();
 		double x = this.x * (1 - time) + targetX * time;
 		double y = this.y * (1 - time) + targetY * time;
 		x = x * WorldComponent.GRID_SIZE + WorldComponent.GRID_SIZE / 2d;
@@ -481,6 +596,38 @@ public class Robot {
 		return null;
 	}
 
+	/**
+	 * The barrel in the cell relative to the robot, as toRelative, packed in
+	 * an int: x in the high 16 bits and y in the low.
+	 */
+	private int relativeBarrel(int cell) {
+		int rx = FuelBoard.x(cell);
+		int ry = FuelBoard.y(cell);
+		switch (dir) {
+		case DIR_NORTH:
+			return rx - x << 16 | (y - ry & 0xFFFF);
+		case DIR_SOUTH:
+			return x - rx << 16 | (ry - y & 0xFFFF);
+		case DIR_WEST:
+			return y - ry << 16 | (x - rx & 0xFFFF);
+		case DIR_EAST:
+			return ry - y << 16 | (rx - x & 0xFFFF);
+		}
+		return 0;
+	}
+
+	private static int barrelX(int barrel) {
+		return barrel >> 16;
+	}
+
+	private static int barrelY(int barrel) {
+		return (short) barrel;
+	}
+
+	private static int distance(int barrel) {
+		return Math.abs(barrelX(barrel)) + Math.abs(barrelY(barrel));
+	}
+
 	private double getAngle(int direction) {
 		switch (direction) {
 		case DIR_NORTH:
@@ -512,8 +659,7 @@ public class Robot {
 			targetFuel -= FUEL_TURN;
 			break;
 		case ACTION_TAKE_FUEL:
-			if (world.getAvailableFuel().contains(new Point(x, y))) {
-				world.getAvailableFuel().remove(new Point(x, y));
+			if (world.getAvailableFuel().remove(x, y)) {
 				targetFuel = 100;
 				return;
 			} else {// try to siphon fuel
@@ -521,7 +667,8 @@ public class Robot {
 				if (other != null && !other.shield) {
 					Point otherP = getOtherRobotPosition(); // relative position
 					if (otherP.x == 0 && otherP.y == 1) {
-						System.out.println("Taking fuel");
+						if (!quiet)
+							System.out.println("Taking fuel");
 						int takeFuel = Math.min(25, other.targetFuel / 2);
 						takeFuel = Math.min(other.targetFuel, takeFuel);
 						targetFuel = Math.min(100, targetFuel + takeFuel);
@@ -547,13 +694,39 @@ public class Robot {
 		processFuel();
 		if (this.noWait) {
 			updatePending();
+		} else if (!stepped) {
+			// parked until updatePending hands the turn back, which may happen before parking
+			waiting = Thread.currentThread();
+			while (currentAction != 0)
+				LockSupport.park(this);
+			waiting = null;
+		}
+		steps = InstructionMeter.steps(budget);
+	}
+
+	/**
+	 * Called by the program for the steps it takes, see InstructionMeter. If
+	 * it runs out before acting the robot waits out the turn, or is stopped.
+	 * Returns true if it waited, which counts as the program's action.
+	 */
+	boolean charge(int n) {
+		if ((steps -= n) < 0)
+			return outOfSteps();
+		return false;
+	}
+
+	private boolean outOfSteps() {
+		if (budget <= 0) {
+			steps = Integer.MAX_VALUE;
+			return false;
+		} else if (InstructionMeter.TERMINATE) {
+			if (!quiet)
+				System.out.println(colour + " robot ran " + budget + " steps without acting, stopped");
+			throw new RobotInterruptedException();
 		} else {
-			while (currentAction != 0) {
-				try {
-					Thread.sleep(10);
-				} catch (InterruptedException e) {
-				}
-			}
+			debug("out of steps");
+			idleWait();
+			return true;
 		}
 	}
 
@@ -571,21 +744,40 @@ public class Robot {
 			processFuel();
 		}
 		otherRobotPos = getOtherRobotPosition();
-		barrels = new ArrayList<Point>(world.getAvailableFuel());
-		for (int i = 0; i < barrels.size(); i++) {
-			Point p = toRelative(barrels.get(i));
-			barrels.set(i, p);
-		}
-		Collections.sort(barrels, new Comparator<Point>() {
-
-			@Override
-			public int compare(Point p1, Point p2) {
-				int d1 = Math.abs(p1.x) + Math.abs(p1.y);
-				int d2 = Math.abs(p2.x) + Math.abs(p2.y);
-				return d1 - d2;
+		// closest first, equally close barrels in the order of their cells
+		long[] fuel = world.getAvailableFuel().snapshot();
+		int[] sorted = new int[FuelBoard.size(fuel)];
+		int n = 0;
+		for (int cell = FuelBoard.next(fuel, 0); cell >= 0; cell = FuelBoard.next(fuel, cell + 1)) {
+			int b = relativeBarrel(cell), d = distance(b), i = n++;
+			while (i > 0 && distance(sorted[i - 1]) > d) {
+				sorted[i] = sorted[i - 1];
+				i--;
 			}
-		});
+			sorted[i] = b;
+		}
+		barrels = sorted;
+		// the new epoch before the turn is handed back, see epoch
+		epoch++;
 		currentAction = 0;
+		Thread t = waiting;
+		if (t != null)
+			LockSupport.unpark(t);
+		if (stateToRead) {
+			stateToRead = false;
+			readState();
+		}
+	}
+
+	/** Changes whenever updatePending does, so sensor readings can be cached until then. */
+	int epoch() {
+		return epoch;
+	}
+
+	/** Throws RobotInterruptedException if the robot has been cancelled, as every sensor does. */
+	void checkCancelled() {
+		if (cancelled)
+			throw new RobotInterruptedException();
 	}
 
 	public String toString() {
@@ -597,7 +789,7 @@ public class Robot {
 	 * turned on.
 	 */
 	private void debug(String action) {
-		if (RoboGame.debugDisplay && program != null) {
+		if (RoboGame.debugDisplay && program != null && !quiet) {
 			System.out.println(colour + " robot: " + action);
 		}
 	}
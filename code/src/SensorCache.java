@@ -0,0 +1,79 @@
+/**
+ * The sensor readings of one running program, remembered until the robot's
+ * state next changes. A robot's sensors only change in updatePending, which
+ * bumps its epoch, so a reading taken in the current epoch can be returned
+ * again without going back to the robot. A decision that looks at barrelFB
+ * several times, or at barrelLR(sub(numBarrels, 1)), then reads each sensor
+ * once per epoch.
+ *
+ * Cached readings still check whether the robot has been cancelled, but don't
+ * print the robot's debug messages again.
+ */
+class SensorCache {
+
+	static final int FUEL = 0, OPPLR = 1, OPPFB = 2, NUMBARRELS = 3, WALLDIST = 4;
+
+	/** The nth closest barrels whose positions are cached */
+	private static final int BARRELS = 16;
+
+	private static final int BARRELLR = 5, BARRELFB = BARRELLR + BARRELS;
+
+	private int epoch = -1;
+
+	/** A bit per reading, set if it was taken in the current epoch */
+	private long valid;
+	private final int[] values = new int[BARRELFB + BARRELS];
+
+	/** One of the sensors without an argument: FUEL, OPPLR, OPPFB, NUMBARRELS or WALLDIST. */
+	int read(Robot robot, int sensor) {
+		return get(robot, sensor, 0);
+	}
+
+	/** The left-right position of the nth closest barrel, as Robot.getBarrelLR. */
+	int barrelLR(Robot robot, int n) {
+		if (n < 0 || n >= BARRELS)
+			return robot.getBarrelLR(n);
+		return get(robot, BARRELLR + n, n);
+	}
+
+	/** The front-back position of the nth closest barrel, as Robot.getBarrelFB. */
+	int barrelFB(Robot robot, int n) {
+		if (n < 0 || n >= BARRELS)
+			return robot.getBarrelFB(n);
+		return get(robot, BARRELFB + n, n);
+	}
+
+	private int get(Robot robot, int reading, int n) {
+		int e = robot.epoch(); // before reading, so a change while reading invalidates it
+		if (e == epoch) {
+			if ((valid & (1L << reading)) != 0) {
+				robot.checkCancelled();
+				return values[reading];
+			}
+		} else {
+			epoch = e;
+			valid = 0;
+		}
+		int v = sensor(robot, reading, n);
+		values[reading] = v;
+		valid |= 1L << reading;
+		return v;
+	}
+
+	private static int sensor(Robot robot, int reading, int n) {
+		switch (reading) {
+		case FUEL:
+			return robot.getFuel();
+		case OPPLR:
+			return robot.getOpponentLR();
+		case OPPFB:
+			return robot.getOpponentFB();
+		case NUMBARRELS:
+			return robot.numBarrels();
+		case WALLDIST:
+			return robot.getDistanceToWall();
+		default:
+			return reading < BARRELFB ? robot.getBarrelLR(n) : robot.getBarrelFB(n);
+		}
+	}
+}
@@ -0,0 +1,3 @@
+interface SensorNode extends ExpressionNode{
+	public int evaluate(Robot robot);
+}
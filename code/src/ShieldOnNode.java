@@ -0,0 +1,12 @@
+class ShieldOnNode implements ActionNode{
+
+	@Override
+	public void execute(Robot robot) {
+		robot.setShield(true);
+	}
+
+	public String toString(){
+		return "ShieldOn;";
+	}
+
+}
@@ -0,0 +1,12 @@
+class ShielfOffNode implements ActionNode{
+
+	@Override
+	public void execute(Robot robot) {
+		robot.setShield(false);
+	}
+
+	public String toString(){
+		return "ShieldOff;";
+	}
+
+}
@@ -0,0 +1,114 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads program and fuel placement files into ByteBuffers without decoding
+ * them into Strings. Large files are memory mapped; small ones are read into a
+ * direct buffer that is kept per thread and reused for the next file.
+ */
+class SourceReader {
+
+	/** Files at least this big are mapped rather than read */
+	static final int MAP_THRESHOLD = 64 * 1024;
+
+	private static final ThreadLocal<ByteBuffer> pool = new ThreadLocal<ByteBuffer>() {
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocateDirect(8 * 1024);
+		}
+	};
+
+	/**
+	 * The contents of the file. A small file is read into this thread's pooled
+	 * buffer, so the result is only valid until the next call to read on the
+	 * same thread.
+	 */
+	static ByteBuffer read(File file) throws IOException {
+		try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = ch.size();
+			if (size >= MAP_THRESHOLD)
+				return ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+			ByteBuffer buf = pool.get();
+			if (buf.capacity() < size) {
+				buf = ByteBuffer.allocateDirect(Integer.highestOneBit((int) size) * 2);
+				pool.set(buf);
+			}
+			buf.clear();
+			while (buf.position() < size && ch.read(buf) >= 0) {
+			}
+			buf.flip();
+			return buf;
+		}
+	}
+
+	/**
+	 * Reads a fuel placement file: one barrel per line, given as its x and y
+	 * coordinates separated by whitespace, each from 0 to World.SIZE - 1.
+	 *
+	 * @return the coordinates as x0, y0, x1, y1, ...
+	 * @throws IOException
+	 *             if the file can't be read, or a line is not a barrel on the
+	 *             board
+	 */
+	static int[] readFuel(File file) throws IOException {
+		return parseFuel(read(file));
+	}
+
+	/**
+	 * Parses fuel placements (see readFuel) straight from the bytes.
+	 */
+	static int[] parseFuel(ByteBuffer buf) throws IOException {
+		int[] coords = new int[16];
+		int n = 0;
+		int line = 1;
+		int i = buf.position();
+		int end = buf.limit();
+		while (i < end) {
+			// one line: skip leading blanks, read two numbers, expect end of line
+			int x = 0, y = 0, count = 0;
+			while (i < end && buf.get(i) != '\n') {
+				int c = buf.get(i);
+				if (c == ' ' || c == '\t' || c == '\r') {
+					i++;
+				} else if (count < 2 && (c == '-' || (c >= '0' && c <= '9'))) {
+					boolean negative = c == '-';
+					if (negative)
+						i++;
+					int start = i;
+					long v = 0;
+					while (i < end && buf.get(i) >= '0' && buf.get(i) <= '9' && v <= Integer.MAX_VALUE) {
+						v = v * 10 + (buf.get(i) - '0');
+						i++;
+					}
+					if (i == start || v > Integer.MAX_VALUE)
+						throw new IOException("Malformed number in fuel file at line " + line);
+					if (count++ == 0)
+						x = (int) (negative ? -v : v);
+					else
+						y = (int) (negative ? -v : v);
+				} else {
+					throw new IOException("Unexpected character in fuel file at line " + line);
+				}
+			}
+			if (count == 2) {
+				if (x < 0 || x >= World.SIZE || y < 0 || y >= World.SIZE)
+					throw new IOException("Fuel at (" + x + "," + y + ") is off the " + World.SIZE + "x" + World.SIZE
+							+ " board in fuel file at line " + line);
+				if (n + 2 > coords.length)
+					coords = Arrays.copyOf(coords, coords.length * 2);
+				coords[n++] = x;
+				coords[n++] = y;
+			} else if (count != 0) {
+				throw new IOException("Expected two coordinates in fuel file at line " + line);
+			}
+			i++; // the newline
+			line++;
+		}
+		return Arrays.copyOf(coords, n);
+	}
+}
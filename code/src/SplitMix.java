@@ -0,0 +1,32 @@
+/**
+ * The SplitMix64 mixing function. Mixing a seed plus a counter gives the
+ * counter's value in a stream of well spread random numbers, so any value
+ * can be computed without the ones before it and without state shared
+ * between threads. World draws its fuel this way, and Tournament its seeds.
+ */
+class SplitMix {
+
+	/** The gap between the inputs of consecutive values, the golden ratio in 64 bits */
+	static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+	/** The nth value of the stream with the given seed. */
+	static long next(long seed, long n) {
+		return mix(seed + (n + 1) * GAMMA);
+	}
+
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/** A number from 0 (inclusive) to bound (exclusive) from 32 random bits. */
+	static int below(int bound, long bits32) {
+		return (int) (((bits32 & 0xFFFFFFFFL) * bound) >>> 32);
+	}
+
+	/** A double from 0 (inclusive) to 1 (exclusive) from the top 53 bits. */
+	static double fraction(long bits) {
+		return (bits >>> 11) * 0x1.0p-53;
+	}
+}
@@ -0,0 +1,2 @@
+//Empty Interfaces - SubTyping/Polymorphism
+interface StatementNode extends RobotProgramNode{}
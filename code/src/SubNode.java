@@ -0,0 +1,17 @@
+class SubNode implements OPNode{
+
+	@Override
+	public String getOP() {
+		return "sub";
+	}
+
+	@Override
+	public int evaluate(Robot robot) {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
+	public String toString(){
+		return "sub";
+	}
+}
@@ -0,0 +1,12 @@
+class TakeFuelNode implements ActionNode{
+
+	@Override
+	public void execute(Robot robot) {
+		robot.takeFuel();
+	}
+
+	public String toString(){
+		return "TakeFuel;";
+	}
+
+}
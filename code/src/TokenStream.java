@@ -0,0 +1,103 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The tokens produced by the Lexer, held in parallel int arrays, together with
+ * a cursor used by the parser to consume them.
+ */
+class TokenStream {
+
+	private ByteBuffer src;
+
+	private int[] kinds, offsets, lengths, values, lines, columns;
+	private int size = 0;
+
+	/** index of the next token to be consumed */
+	int pos = 0;
+
+	TokenStream(ByteBuffer src, int capacity) {
+		this.src = src;
+		kinds = new int[capacity];
+		offsets = new int[capacity];
+		lengths = new int[capacity];
+		values = new int[capacity];
+		lines = new int[capacity];
+		columns = new int[capacity];
+	}
+
+	void add(int kind, int offset, int length, int value, int line, int column) {
+		if (size == kinds.length) {
+			int cap = size * 2;
+			kinds = Arrays.copyOf(kinds, cap);
+			offsets = Arrays.copyOf(offsets, cap);
+			lengths = Arrays.copyOf(lengths, cap);
+			values = Arrays.copyOf(values, cap);
+			lines = Arrays.copyOf(lines, cap);
+			columns = Arrays.copyOf(columns, cap);
+		}
+		kinds[size] = kind;
+		offsets[size] = offset;
+		lengths[size] = length;
+		values[size] = value;
+		lines[size] = line;
+		columns[size] = column;
+		size++;
+	}
+
+	/** Number of tokens, including the trailing EOF. */
+	int size() {
+		return size;
+	}
+
+	/** Kind of the next token. */
+	int kind() {
+		return kinds[pos];
+	}
+
+	/** Value of the next token, only meaningful for NUM tokens. */
+	int value() {
+		return values[pos];
+	}
+
+	int line() {
+		return lines[pos];
+	}
+
+	int column() {
+		return columns[pos];
+	}
+
+	boolean hasNext() {
+		return kinds[pos] != Lexer.EOF;
+	}
+
+	/** Consumes the next token (the EOF token is never consumed). */
+	void advance() {
+		if (kinds[pos] != Lexer.EOF)
+			pos++;
+	}
+
+	/** The source text of the next token. */
+	String text() {
+		return text(pos);
+	}
+
+	String text(int i) {
+		byte[] bytes = new byte[lengths[i]];
+		for (int j = 0; j < bytes.length; j++)
+			bytes[j] = src.get(offsets[i] + j);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Copies the source into a private heap buffer, so that the token text
+	 * stays readable after the original buffer has been reused or unmapped.
+	 */
+	void detachSource() {
+		ByteBuffer copy = ByteBuffer.allocate(src.limit());
+		for (int i = src.position(); i < src.limit(); i++)
+			copy.put(i, src.get(i));
+		src = copy;
+	}
+}
@@ -0,0 +1,270 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A round robin between programs: every program plays every other a number
+ * of times, alternating which of them is red. The matches are headless (see
+ * Match) and independent, so they are split across a ForkJoinPool, whose
+ * idle threads steal from the busy ones; each program is parsed and lowered
+ * to the RegisterVM once and shared by all its matches.
+ *
+ * Each match has its own seed, derived from the tournament's seed and the
+ * match's place in the schedule, unless every match is given the same
+ * FuelSchedule to compare the programs on identical fuel. The results are
+ * tallied in schedule order once every match has been played, so the tables
+ * are the same for the same programs and fuel however many threads play
+ * them.
+ *
+ * The results are tallied into a table of wins, draws and losses (and the
+ * average fuel each program had left at the end of its matches, counting
+ * running out as 0), a head to head table, and Elo ratings updated match by
+ * match from 1500 with a K factor of 32. A program that throws at run time
+ * loses that match (see Robot.fail), and the table counts the matches each
+ * program failed in; the other matches are played as usual.
+ *
+ * To run a tournament run
+ * <code>java Tournament [-repeats n] [-seed s] [-threads t] [-fuel schedule|-samefuel] a.prog b.prog...</code>
+ * where -samefuel plays every match with the fuel of the seed.
+ */
+class Tournament {
+
+	private static final double INITIAL_RATING = 1500, K = 32;
+
+	/** Matches played by one task rather than split further */
+	private static final int BATCH = 4;
+
+	private final String[] names;
+	private final RobotProgramNode[] programs;
+	private final int repeats;
+	private final long seed;
+
+	/** The fuel of every match, or null for each to have its own seed */
+	private final FuelSchedule fuel;
+
+	/** The schedule: for each match, the programs playing red and blue */
+	private final int[] reds, blues;
+	private final MatchResult[] results;
+
+	private final Entry[] entries;
+
+	/** [a][b] is a's wins, draws and losses against b */
+	private final int[][][] headToHead;
+
+	/** The results of one program. */
+	static class Entry {
+		final String name;
+		int wins, draws, losses;
+
+		/** The matches the program threw in, which it lost */
+		int failures;
+		long fuel;
+		double rating = INITIAL_RATING;
+
+		Entry(String name) {
+			this.name = name;
+		}
+
+		int played() {
+			return wins + draws + losses;
+		}
+
+		double averageFuel() {
+			return played() == 0 ? 0 : (double) fuel / played();
+		}
+	}
+
+	/**
+	 * A tournament between the programs, each pair playing repeats matches.
+	 * The programs may be trees or already lowered to the RegisterVM. The
+	 * matches all have the given fuel, or if it is null their own seeds.
+	 */
+	Tournament(String[] names, RobotProgramNode[] programs, int repeats, long seed, FuelSchedule fuel) {
+		this.names = names;
+		this.programs = programs;
+		this.repeats = repeats;
+		this.seed = seed;
+		this.fuel = fuel;
+		int n = programs.length, matches = n * (n - 1) / 2 * repeats;
+		reds = new int[matches];
+		blues = new int[matches];
+		int m = 0;
+		for (int a = 0; a < n; a++)
+			for (int b = a + 1; b < n; b++)
+				for (int r = 0; r < repeats; r++, m++) {
+					reds[m] = r % 2 == 0 ? a : b;
+					blues[m] = r % 2 == 0 ? b : a;
+				}
+		results = new MatchResult[matches];
+		entries = new Entry[n];
+		for (int i = 0; i < n; i++)
+			entries[i] = new Entry(names[i]);
+		headToHead = new int[n][n][3];
+	}
+
+	/** Plays every match on the pool, then tallies the results. */
+	void play(ForkJoinPool pool) {
+		pool.invoke(new Matches(0, results.length));
+		for (int m = 0; m < results.length; m++)
+			tally(reds[m], blues[m], results[m]);
+	}
+
+	/** Plays a range of the schedule, splitting it while it is larger than a batch. */
+	@SuppressWarnings("serial")
+	private class Matches extends RecursiveAction {
+		private final int from, to;
+
+		Matches(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= BATCH) {
+				for (int m = from; m < to; m++)
+					results[m] = (fuel != null ? new Match(programs[reds[m]], programs[blues[m]], fuel)
+							: new Match(programs[reds[m]], programs[blues[m]], seed(m))).play();
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Matches(from, mid), new Matches(mid, to));
+			}
+		}
+	}
+
+	/** The seed of a match, spread from the tournament's seed. */
+	private long seed(int match) {
+		return SplitMix.next(seed, match);
+	}
+
+	private void tally(int red, int blue, MatchResult result) {
+		Entry r = entries[red], b = entries[blue];
+		r.fuel += Math.max(0, result.redFuel);
+		b.fuel += Math.max(0, result.blueFuel);
+		if (result.redFailure != null)
+			r.failures++;
+		if (result.blueFailure != null)
+			b.failures++;
+		double score; // red's
+		if (result.winner == MatchResult.RED) {
+			r.wins++;
+			b.losses++;
+			headToHead[red][blue][0]++;
+			headToHead[blue][red][2]++;
+			score = 1;
+		} else if (result.winner == MatchResult.BLUE) {
+			r.losses++;
+			b.wins++;
+			headToHead[red][blue][2]++;
+			headToHead[blue][red][0]++;
+			score = 0;
+		} else {
+			r.draws++;
+			b.draws++;
+			headToHead[red][blue][1]++;
+			headToHead[blue][red][1]++;
+			score = 0.5;
+		}
+		double expected = 1 / (1 + Math.pow(10, (b.rating - r.rating) / 400));
+		r.rating += K * (score - expected);
+		b.rating -= K * (score - expected);
+	}
+
+	/** The programs' results, best rated first. */
+	List<Entry> standings() {
+		List<Entry> standings = new ArrayList<Entry>(Arrays.asList(entries));
+		standings.sort(new Comparator<Entry>() {
+			@Override
+			public int compare(Entry a, Entry b) {
+				return Double.compare(b.rating, a.rating);
+			}
+		});
+		return standings;
+	}
+
+	/** The standings and head to head tables as text. */
+	String report() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%d programs, %d matches each pair, %d matches, %s%n%n", programs.length, repeats,
+				results.length, fuel != null ? "the same fuel for every match" : "seed " + seed));
+		sb.append(String.format("%-20s %6s %5s %5s %5s %6s %8s %7s%n", "program", "played", "won", "drawn", "lost",
+				"failed", "avg fuel", "elo"));
+		for (Entry e : standings())
+			sb.append(String.format("%-20s %6d %5d %5d %5d %6d %8.1f %7.0f%n", e.name, e.played(), e.wins, e.draws,
+					e.losses, e.failures, e.averageFuel(), e.rating));
+		sb.append(String.format("%nwins-draws-losses of each row against each column%n%-20s", ""));
+		for (String name : names)
+			sb.append(String.format(" %12s", abbreviate(name)));
+		sb.append('\n');
+		for (int a = 0; a < names.length; a++) {
+			sb.append(String.format("%-20s", names[a]));
+			for (int b = 0; b < names.length; b++)
+				sb.append(String.format(" %12s", a == b ? "-"
+						: headToHead[a][b][0] + "-" + headToHead[a][b][1] + "-" + headToHead[a][b][2]));
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	private static String abbreviate(String name) {
+		return name.length() <= 12 ? name : name.substring(0, 11) + "~";
+	}
+
+	public static void main(String[] args) throws IOException {
+		int repeats = 10, threads = Runtime.getRuntime().availableProcessors();
+		long seed = System.nanoTime();
+		File schedule = null;
+		boolean sameFuel = false;
+		List<File> files = new ArrayList<File>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-repeats") && i + 1 < args.length)
+				repeats = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-seed") && i + 1 < args.length)
+				seed = Long.parseLong(args[++i]);
+			else if (args[i].equals("-threads") && i + 1 < args.length)
+				threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-fuel") && i + 1 < args.length)
+				schedule = new File(args[++i]);
+			else if (args[i].equals("-samefuel"))
+				sameFuel = true;
+			else
+				files.add(new File(args[i]));
+		}
+		if (files.size() < 2) {
+			System.out.println(
+					"Usage: java Tournament [-repeats n] [-seed s] [-threads t] [-fuel schedule|-samefuel] a.prog b.prog...");
+			return;
+		}
+		String[] names = new String[files.size()];
+		RobotProgramNode[] programs = new RobotProgramNode[files.size()];
+		for (int i = 0; i < programs.length; i++) {
+			names[i] = files.get(i).getName();
+			try {
+				programs[i] = RegisterVM.compile(Parser.parse(files.get(i)));
+			} catch (ParserFailureException e) {
+				System.out.println(names[i] + " is not a valid program:");
+				System.out.println(e.getMessage());
+				return;
+			}
+		}
+		FuelSchedule fuel = schedule != null ? FuelSchedule.read(schedule)
+				: sameFuel ? FuelSchedule.random(seed, Match.MAX_TICKS + 1) : null;
+		Tournament t = new Tournament(names, programs, repeats, seed, fuel);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		long start = System.nanoTime();
+		try {
+			t.play(pool);
+		} finally {
+			pool.shutdown();
+		}
+		long ms = (System.nanoTime() - start) / 1000000;
+		System.out.print(t.report());
+		System.out.println();
+		System.out.println(t.results.length + " matches in " + ms + " ms on " + threads + " threads");
+	}
+}
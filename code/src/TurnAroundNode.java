@@ -0,0 +1,12 @@
+class TurnAroundNode implements ActionNode{
+
+	@Override
+	public void execute(Robot robot) {
+		robot.turnAround();
+	}
+
+	public String toString(){
+		return "TurnAround;";
+	}
+
+}
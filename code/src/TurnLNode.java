@@ -0,0 +1,13 @@
+class TurnLNode implements ActionNode{
+
+	@Override
+	public void execute(Robot robot) {
+		robot.turnLeft();
+	}
+
+	public String toString(){
+		return "TurnL;";
+	}
+
+
+}
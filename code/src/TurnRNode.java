@@ -0,0 +1,13 @@
+class TurnRNode implements ActionNode{
+
+
+	@Override
+	public void execute(Robot robot) {
+		robot.turnRight();
+	}
+
+	public String toString(){
+		return "TurnR;";
+	}
+
+}
@@ -0,0 +1,19 @@
+class VariableNode implements ExpressionNode{
+
+	String value = null;
+	final int slot;		//Index in the frame, see VariableTable
+
+	public VariableNode(String value, int slot){
+		this.value = value;
+		this.slot = slot;
+	}
+
+	@Override
+	public int evaluate(Robot robot) {
+		return robot.context.frame[slot];		//Unassigned variables are 0
+	}
+
+	public String toString(){
+		return value;
+	}
+}
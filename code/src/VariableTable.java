@@ -0,0 +1,37 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns each variable name of one program a slot, numbered from 0 in order
+ * of first use. Whoever builds a program (the parser, or the decoders that
+ * rebuild one) resolves every VariableNode through one of these, so at run
+ * time a variable is just an index into an int array.
+ */
+class VariableTable {
+
+	private final Map<String, Integer> slots = new HashMap<String, Integer>();
+	private final List<String> names = new ArrayList<String>();
+
+	/** The slot of the named variable, allocating one if it is new. */
+	int slot(String name) {
+		Integer slot = slots.get(name);
+		if (slot == null) {
+			slot = names.size();
+			slots.put(name, slot);
+			names.add(name);
+		}
+		return slot;
+	}
+
+	/** A variable node for the name, with its slot resolved. */
+	VariableNode variable(String name) {
+		return new VariableNode(name, slot(name));
+	}
+
+	/** The names by slot. */
+	String[] names() {
+		return names.toArray(new String[names.size()]);
+	}
+}
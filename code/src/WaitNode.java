@@ -0,0 +1,49 @@
+class WaitNode implements ActionNode{
+
+	ExpressionNode exp;
+	private volatile boolean specialized;		//See prepare
+
+	public WaitNode(){}
+	public WaitNode(ExpressionNode exp){
+		this.exp = exp;
+	}
+
+	@Override
+	public void execute(Robot robot) {
+		if(!specialized)
+			prepare();
+
+		if(exp!=null){
+
+			int step = exp.evaluate(robot);
+
+			int i = 0;
+			while( i < step){
+				robot.idleWait();
+				i++;
+			}
+		}
+		else
+			robot.idleWait();
+	}
+
+	/** Specialises the argument once, before it first runs, see NodeSpecializer and LoopTier */
+	synchronized void prepare(){
+		if(!specialized){
+			if(exp!=null && NodeSpecializer.ENABLED)
+				exp = NodeSpecializer.expression(exp);
+			specialized = true;
+		}
+	}
+
+	public String toString(){
+
+		if(exp!=null)
+			return "Wait("+this.exp+")";
+		else
+			return "Wait;";
+
+
+	}
+
+}
@@ -0,0 +1,11 @@
+class WallDistNode implements SensorNode{
+
+	@Override
+	public int evaluate(Robot robot) {
+		return robot.context.sensors.read(robot, SensorCache.WALLDIST);
+	}
+
+	public String toString(){
+		return "WallDist";
+	}
+}
@@ -0,0 +1,46 @@
+class WhileNode implements StatementNode{
+
+
+	ConditionalNode condition;
+	BlockNode block;
+	final LoopTier tier = new LoopTier(this);
+	private volatile boolean specialized;		//See prepare
+	private int cost;		//See InstructionMeter
+
+	public WhileNode(ConditionalNode c, BlockNode b){
+		this.condition = c;
+		this.block = b;
+	}
+
+	@Override
+	public void execute(Robot robot) {
+		if(!specialized)
+			prepare();
+		if(cost == 0)
+			cost = InstructionMeter.loopCost(this);
+		while(condition.evaluate(robot)){
+			block.execute(robot);
+			robot.charge(cost);
+			LoopTier.CompiledLoop compiled = tier.backEdge(robot);
+			if(compiled != null){		//Carry on from the next condition test in compiled code
+				compiled.run(robot, robot.context.frame);
+				return;
+			}
+		}
+	}
+
+	/** Specialises the condition once, before it first runs, see NodeSpecializer and LoopTier */
+	synchronized void prepare(){
+		if(!specialized){
+			if(NodeSpecializer.ENABLED)
+				condition = NodeSpecializer.condition(condition);
+			specialized = true;
+		}
+	}
+
+	public String toString(){
+		return "while( "+this.condition + ")" +this.block;
+	}
+
+
+}
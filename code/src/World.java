@@ -1,28 +1,92 @@
 
-import java.awt.Point;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.Collections;
+import java.lang.reflect.Method;
 import java.util.List;
-import java.util.Random;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class World {
 
 	public static final int SIZE = 12;
 
-	protected Set<Point> availableFuel = Collections.newSetFromMap(new ConcurrentHashMap<Point, Boolean>());
-	private Random rand = new Random();
+	protected FuelBoard availableFuel = new FuelBoard();
+	/**
+	 * Where fuel appears, or null to draw it from the seed tick by tick (see
+	 * FuelSchedule.random), so the same seed always places it the same way
+	 */
+	private FuelSchedule schedule;
+	private long seed = ThreadLocalRandom.current().nextLong();
+
+	/** The number of updateWorlds so far */
+	private int tick = 0;
+
+	/** The fuel placed so far, see fuelPlaced */
+	private final FuelSchedule.Builder placed = new FuelSchedule.Builder();
 	protected Robot[] robots;
 
+	/** The robots' programs by id when they are stepped, see startStepped; otherwise null */
+	private RegisterVM.State[] states;
+
+	/**
+	 * Thread.Builder.unstarted on Thread.ofVirtual(), where the JVM has
+	 * virtual threads; otherwise null
+	 */
+	private static final Object VIRTUAL_THREADS;
+	private static final Method UNSTARTED;
+
+	static {
+		Object builder = null;
+		Method unstarted = null;
+		if (!"false".equals(System.getProperty("robot.virtual"))) {
+			try {
+				builder = Thread.class.getMethod("ofVirtual").invoke(null);
+				unstarted = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				builder = null; // before Java 21, or a preview that isn't enabled
+			}
+		}
+		VIRTUAL_THREADS = builder;
+		UNSTARTED = unstarted;
+	}
+
+	/** Robot.defaultProgram, for stepped robots without a program */
+	private static final String DEFAULT_PROGRAM = "while (gt(fuelLeft, 0)) {"
+			+ " if (eq(numBarrels, 0)) { wait; }"
+			+ " elif (and(eq(barrelLR, 0), eq(barrelFB, 0))) { takeFuel; }"
+			+ " elif (eq(barrelFB, 0)) { if (lt(barrelLR, 0)) { turnL; } else { turnR; } }"
+			+ " elif (gt(barrelFB, 0)) { move; }"
+			+ " else { turnAround; } }";
+
 	public World() {
 		robots = new Robot[] { null, new Robot(this, 0, 0, "red", false), new Robot(this, SIZE - 1, SIZE - 1, "blue", false) };
 	}
 
+	/** A world whose fuel is placed the same way every time for the same seed. */
+	World(long seed) {
+		this();
+		this.seed = seed;
+	}
+
+	/** A world whose fuel appears as the schedule says. */
+	World(FuelSchedule schedule) {
+		this();
+		this.schedule = schedule;
+	}
+
+	/** The seed of the fuel placement, to replay it with World(long). */
+	long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * The fuel placed so far, to replay it with World(FuelSchedule). A copy,
+	 * which later ticks don't change. Only call it from the thread that calls
+	 * updateWorld, as the fuel is recorded there without locking.
+	 */
+	FuelSchedule fuelPlaced() {
+		return placed.build(tick + 1);
+	}
+
 	/**
 	 * This world can no longer be used after this call.
 	 */
@@ -34,54 +98,174 @@ public class World {
 		}
 	}
 
-	public Set<Point> getAvailableFuel() {
+	public FuelBoard getAvailableFuel() {
 		return availableFuel;
 	}
 
 	public void updateWorld() {
-		addFuel(false);
+		tick++;
+		addFuel();
 		for (int i = 1; i <= 2; i++) {
 			robots[i].updatePending();
 		}
+		if (states != null) {
+			for (int i = 1; i <= 2; i++)
+				step(i);
+		}
 	}
 
+	/**
+	 * Loads the program for a robot: a .prog file, or a .class file written by
+	 * ProgramCompiler. If the robot.compile system property is true .prog files
+	 * are compiled to bytecode, falling back to the interpreter if that fails,
+	 * and if robot.vm is true they are run by the RegisterVM instead. Programs
+	 * are optimized first unless robot.optimize is false, and the changes the
+	 * optimizer made are printed if robot.verbose is true.
+	 */
 	public void loadRobotProgram(int id, File code) {
+		if (code.getName().endsWith(".class")) {
+			try {
+				robots[id].setProgram(ProgramCompiler.define(code));
+				System.out.println("Robot " + id + " now has compiled program " + code.getName());
+			} catch (IOException | IllegalArgumentException e) {
+				System.out.println("Could not load " + code + ": " + e.getMessage());
+			}
+			return;
+		}
 		RobotProgramNode prog = Parser.parseFile(code);
 		if (prog != null) {
 			System.out.println("Robot " + id + " now has program: ");
 			System.out.println(prog);
+			if (!"false".equals(System.getProperty("robot.optimize"))) {
+				List<String> changes = ProgramOptimizer.optimize((ProgramNode) prog);
+				if (Boolean.getBoolean("robot.verbose") && !changes.isEmpty()) {
+					System.out.println("Optimized:");
+					for (String change : changes)
+						System.out.println("  " + change);
+				}
+			}
+			if (Boolean.getBoolean("robot.compile")) {
+				try {
+					prog = ProgramCompiler.load((ProgramNode) prog);
+				} catch (IllegalArgumentException e) {
+					System.out.println("Running interpreted, could not compile: " + e.getMessage());
+				}
+			} else if (Boolean.getBoolean("robot.vm")) {
+				try {
+					prog = RegisterVM.compile((ProgramNode) prog);
+				} catch (IllegalArgumentException e) {
+					System.out.println("Running interpreted, could not lower to the VM: " + e.getMessage());
+				}
+			}
 			robots[id].setProgram(prog);
 		}
 	}
 
+	/**
+	 * Starts the robots, each on a thread of its own, or stepped if the
+	 * robot.stepped system property is true. The threads are virtual where
+	 * the JVM has them (unless robot.virtual is false), so a robot blocked
+	 * until the next tick holds no platform thread, and any number of
+	 * matches can run at once.
+	 */
 	public void start() {
-		// add some initial fuel
-		if (availableFuel.isEmpty()) {
-			addFuel(true);
-			addFuel(true);
+		if (Boolean.getBoolean("robot.stepped")) {
+			startStepped();
+			return;
 		}
-		new Thread(new Runnable() {
+		addInitialFuel();
+		newThread(new Runnable() {
 			@Override
 			public void run() {
 				try {
 					robots[1].run();
 				} catch (RobotInterruptedException e) {
+				} catch (RuntimeException e) {
+					robots[1].fail(e);
 				}
 				robots[1].setFinished(true);
 			}
 		}).start();
-		new Thread(new Runnable() {
+		newThread(new Runnable() {
 			@Override
 			public void run() {
 				try {
 					robots[2].run();
 				} catch (RobotInterruptedException e) {
+				} catch (RuntimeException e) {
+					robots[2].fail(e);
 				}
 				robots[2].setFinished(true);
 			}
 		}).start();
 	}
 
+	/** A virtual thread if the JVM has them, otherwise a platform thread. */
+	private static Thread newThread(Runnable r) {
+		if (VIRTUAL_THREADS != null) {
+			try {
+				return (Thread) UNSTARTED.invoke(VIRTUAL_THREADS, r);
+			} catch (ReflectiveOperationException e) {
+				// fall back to a platform thread
+			}
+		}
+		return new Thread(r);
+	}
+
+	/**
+	 * Starts the robots without threads of their own. Each program runs on
+	 * the RegisterVM and is stepped to its next action by every updateWorld,
+	 * so whoever calls updateWorld (the GUI's timer, or a Match) is the only
+	 * thread the robots run on, and nothing blocks or sleeps. So that a
+	 * program that never acts can't hold that thread forever, stepped robots
+	 * are limited to InstructionMeter.STEPPED_BUDGET steps per turn.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if a robot's program can't run on the VM, such as a
+	 *             program loaded from a class file
+	 */
+	void startStepped() {
+		addInitialFuel();
+		states = new RegisterVM.State[robots.length];
+		for (int i = 1; i <= 2; i++) {
+			RobotProgramNode prog = robots[i].getProgram();
+			if (prog == null)
+				prog = Parser.parse(DEFAULT_PROGRAM);
+			if (prog instanceof ProgramNode)
+				prog = RegisterVM.compile((ProgramNode) prog);
+			if (!(prog instanceof RegisterVM))
+				throw new IllegalArgumentException("Robot " + i + "'s program can't be stepped");
+			states[i] = ((RegisterVM) prog).start();
+			robots[i].setStepped(true);
+			robots[i].setStepBudget(InstructionMeter.STEPPED_BUDGET);
+		}
+		for (int i = 1; i <= 2; i++)
+			step(i);
+	}
+
+	/**
+	 * Runs a stepped robot's program to its next action that waits for the
+	 * tick (so past any setShield). The robot finishes once its program has
+	 * ended and its last action has been carried out, as it would running on
+	 * a thread, and fails if its program throws.
+	 */
+	private void step(int id) {
+		Robot robot = robots[id];
+		try {
+			while (!robot.isFinished() && !robot.actionPending()) {
+				if (states[id].halted())
+					robot.setFinished(true);
+				else
+					states[id].step(robot);
+			}
+		} catch (RobotInterruptedException e) {
+			robot.setFinished(true);
+		} catch (RuntimeException e) {
+			robot.fail(e);
+			robot.setFinished(true);
+		}
+	}
+
 	public Robot getRobot(int id) {
 		if (id <= 0 || id > robots.length) {
 			return null;
@@ -98,14 +282,30 @@ public class World {
 		return null;
 	}
 
-	private void addFuel(boolean definitely) {
-		if (definitely || rand.nextDouble() < 0.2) {
-			int x = rand.nextInt(12);
-			int y = rand.nextInt(12);
-			Point fuel = new Point(x, y);
-			availableFuel.add(fuel);
+	private void addInitialFuel() {
+		if (availableFuel.isEmpty())
+			addFuel();
+	}
+
+	/** Places the fuel of the current tick. */
+	private void addFuel() {
+		if (schedule != null) {
+			for (int i = 0; i < schedule.count(tick); i++)
+				addFuel(schedule.cell(tick, i));
+		} else if (tick == 0) {
+			addFuel(FuelSchedule.random(seed, 0, true));
+			addFuel(FuelSchedule.random(seed, 1, true));
+		} else {
+			int cell = FuelSchedule.random(seed, tick + 1, false);
+			if (cell >= 0)
+				addFuel(cell);
 		}
 	}
+
+	private void addFuel(int cell) {
+		placed.add(tick, cell);
+		availableFuel.add(FuelBoard.x(cell), FuelBoard.y(cell));
+	}
 	
 	public static class RoboGamePrinter extends World {
 		public RoboGamePrinter() {
@@ -129,12 +329,9 @@ public class World {
 			rgp.robots[1].setProgram(prog);
 			
 			// load fuel placement from file.
-			List<String> fuel = Files.readAllLines(Paths.get(args[1]), StandardCharsets.UTF_8);
-			for (String line : fuel) {
-				String[] coords = line.split("\\s+");
-				int x = Integer.parseInt(coords[0]);
-				int y = Integer.parseInt(coords[1]);
-				rgp.availableFuel.add(new Point(x, y));
+			int[] fuel = SourceReader.readFuel(new File(args[1]));
+			for (int i = 0; i < fuel.length; i += 2) {
+				rgp.availableFuel.add(fuel[i], fuel[i + 1]);
 			}
 			
 			// run the robot.
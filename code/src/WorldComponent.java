@@ -3,7 +3,6 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.Point;
 import java.awt.RenderingHints;
 import java.awt.geom.Line2D;
 import java.awt.image.BufferedImage;
@@ -76,9 +75,10 @@ public class WorldComponent extends JComponent {
 			g2d.draw(vline);
 		}
 
-		for (Point fuel : world.getAvailableFuel()) {
-			int x = fuel.x * GRID_SIZE + GRID_SIZE / 2 - fuelImage.getWidth() / 2;
-			int y = fuel.y * GRID_SIZE + GRID_SIZE / 2 - fuelImage.getHeight() / 2;
+		long[] fuel = world.getAvailableFuel().snapshot();
+		for (int cell = FuelBoard.next(fuel, 0); cell >= 0; cell = FuelBoard.next(fuel, cell + 1)) {
+			int x = FuelBoard.x(cell) * GRID_SIZE + GRID_SIZE / 2 - fuelImage.getWidth() / 2;
+			int y = FuelBoard.y(cell) * GRID_SIZE + GRID_SIZE / 2 - fuelImage.getHeight() / 2;
 			g2d.drawImage(fuelImage, x, y, null);
 		}
 
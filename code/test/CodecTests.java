@@ -0,0 +1,101 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Checks that AstCodec gives back the tree it was given, that it rejects a
+ * truncated encoding, and that the ParseCache ignores a snapshot whose tree
+ * does not match its checksum.
+ */
+class CodecTests implements Tests.Suite {
+
+	/** Where a snapshot's checksum is, after the magic number, version and hash. */
+	static final int CRC_OFFSET = 4 + 4 + 32;
+
+	@Override
+	public Map<String, Tests.Test> tests() throws Exception {
+		Map<String, Tests.Test> tests = new LinkedHashMap<String, Tests.Test>();
+		for (Map.Entry<String, String> e : ParserTests.baseline().entrySet()) {
+			if (e.getValue().equals("rejected\n"))
+				continue;
+			final File file = new File("data", e.getKey());
+			tests.put("codec.roundtrip." + e.getKey().replace(".prog", ""), new Tests.Test() {
+				public void run() throws Exception {
+					ProgramNode program = Parser.parse(file);
+					byte[] encoded = AstCodec.encode(program);
+					Tests.equal(program.toString(), AstCodec.decode(encoded).toString(), file.getName());
+					Tests.check(Arrays.equals(encoded, AstCodec.encode(AstCodec.decode(encoded))),
+							"re-encoding " + file.getName() + " gives the same bytes");
+				}
+			});
+		}
+		tests.put("codec.truncated", new Tests.Test() {
+			public void run() throws Exception {
+				byte[] encoded = AstCodec.encode(Parser.parse(new File("data/s3_full.prog")));
+				try {
+					AstCodec.decode(Arrays.copyOf(encoded, encoded.length / 2));
+					throw new Tests.Failure("decoded half an encoding");
+				} catch (IOException e) {
+					// expected
+				}
+			}
+		});
+		tests.put("codec.cache.crc", new Tests.Test() {
+			public void run() throws Exception {
+				checkSnapshots();
+			}
+		});
+		return tests;
+	}
+
+	/**
+	 * Puts another program's tree in a cached snapshot, once keeping the
+	 * original checksum and once with the tree's own. The first must be
+	 * rejected and the source reparsed; the second is accepted, showing the
+	 * snapshot really is read.
+	 */
+	static void checkSnapshots() throws Exception {
+		File dir = Files.createTempDirectory("parse-cache").toFile();
+		try {
+			File a = new File("data/s1_full.prog"), b = new File("data/s2_full.prog");
+			String treeA = Parser.parse(a).toString(), treeB = Parser.parse(b).toString();
+			new ParseCache(dir, 4).load(a);
+			File[] snapshots = dir.listFiles();
+			Tests.equal(1, snapshots.length, "snapshots written");
+			File snapshot = snapshots[0];
+			byte[] header = Arrays.copyOf(Files.readAllBytes(snapshot.toPath()), CRC_OFFSET + 8);
+			byte[] otherTree = AstCodec.encode(Parser.parse(b));
+
+			write(snapshot, header, otherTree, -1);
+			Tests.equal(treeA, new ParseCache(dir, 4).load(a).toString(), "tree loaded with a bad checksum");
+
+			write(snapshot, header, otherTree, crc(otherTree));
+			Tests.equal(treeB, new ParseCache(dir, 4).load(a).toString(), "tree loaded with a good checksum");
+		} finally {
+			for (File f : dir.listFiles())
+				f.delete();
+			dir.delete();
+		}
+	}
+
+	/** Writes the snapshot, replacing the header's checksum unless it is -1. */
+	private static void write(File snapshot, byte[] header, byte[] tree, long crc) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(header.length + 4 + tree.length);
+		bytes.put(header);
+		if (crc != -1)
+			bytes.putLong(CRC_OFFSET, crc);
+		bytes.putInt(tree.length).put(tree);
+		Files.write(snapshot.toPath(), bytes.array());
+	}
+
+	private static long crc(byte[] data) {
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, data.length);
+		return crc.getValue();
+	}
+}
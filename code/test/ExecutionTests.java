@@ -0,0 +1,66 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that a program does the same whether it is interpreted, compiled to
+ * bytecode by ProgramCompiler or run by the RegisterVM: each valid program in
+ * data/ is run for a fixed number of actions in the benchmarks' world and the
+ * robot's state after every action must be the same for all three.
+ *
+ * Needs the benchmarks (code/bench) on the class path for their world.
+ */
+class ExecutionTests implements Tests.Suite {
+
+	@Override
+	public Map<String, Tests.Test> tests() throws Exception {
+		Map<String, Tests.Test> tests = new LinkedHashMap<String, Tests.Test>();
+		for (Map.Entry<String, String> e : ParserTests.baseline().entrySet()) {
+			if (e.getValue().equals("rejected\n"))
+				continue;
+			final File file = new File("data", e.getKey());
+			tests.put("exec.tiers." + e.getKey().replace(".prog", ""), new Tests.Test() {
+				public void run() throws Exception {
+					List<String> interpreted = trace(Parser.parse(file));
+					Tests.check(!interpreted.isEmpty(), file.getName() + " took no actions");
+					Tests.equal(interpreted, trace(ProgramCompiler.load(Parser.parse(file))), "compiled " + file.getName());
+					Tests.equal(interpreted, trace(RegisterVM.compile(Parser.parse(file))), "vm " + file.getName());
+				}
+			});
+		}
+		return tests;
+	}
+
+	/** Runs the program on the red robot of a fresh world, returning its states. */
+	static List<String> trace(RobotProgramNode program) {
+		World world = new InterpreterBenchmarks.BenchWorld();
+		Recorder robot = new Recorder(world);
+		world.robots[1] = robot;
+		robot.updatePending();
+		robot.setProgram(program);
+		try {
+			robot.run();
+		} catch (RobotInterruptedException e) {
+			// ran out of actions
+		}
+		return robot.states;
+	}
+
+	/** A benchmark robot that keeps its state after every action. */
+	static class Recorder extends InterpreterBenchmarks.BenchRobot {
+		final List<String> states = new ArrayList<String>();
+
+		Recorder(World world) {
+			super(world, 0, 0, "red");
+		}
+
+		@Override
+		public void readState() {
+			// not through the sensors, which count towards the robot's reads
+			states.add(this + " fuel=" + fuelAfterTurn() + " shield=" + isShieldOn());
+			super.readState();
+		}
+	}
+}
@@ -0,0 +1,66 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Checks that fuel placement files are read as before, and that fuel off the
+ * board is rejected with an IOException naming it rather than being placed.
+ */
+class FuelTests implements Tests.Suite {
+
+	@Override
+	public Map<String, Tests.Test> tests() throws Exception {
+		Map<String, Tests.Test> tests = new LinkedHashMap<String, Tests.Test>();
+		final int last = World.SIZE - 1;
+
+		tests.put("fuel.read", new Tests.Test() {
+			public void run() throws Exception {
+				int[] coords = parse("3 4\n0 0\r\n" + last + " " + last + "\n\n");
+				Tests.equal(Arrays.toString(new int[] { 3, 4, 0, 0, last, last }), Arrays.toString(coords), "coordinates");
+			}
+		});
+		for (final String off : new String[] { World.SIZE + " 4", "3 " + World.SIZE, "120 1" }) {
+			tests.put("fuel.offboard." + off.replace(' ', ','), new Tests.Test() {
+				public void run() throws Exception {
+					rejected("1 1\n" + off + "\n", "(" + off.replace(' ', ',') + ")", "line 2");
+				}
+			});
+		}
+		tests.put("fuel.offboard.file", new Tests.Test() {
+			public void run() throws Exception {
+				File file = File.createTempFile("fuel", ".txt");
+				try {
+					Files.write(file.toPath(), ("3 4\n12 2\n").getBytes(StandardCharsets.US_ASCII));
+					SourceReader.readFuel(file);
+					throw new Tests.Failure("read fuel at (12,2)");
+				} catch (IOException e) {
+					Tests.check(e.getMessage().contains("(12,2)"), "message names the position: " + e.getMessage());
+				} finally {
+					file.delete();
+				}
+			}
+		});
+		return tests;
+	}
+
+	static int[] parse(String fuel) throws IOException {
+		return SourceReader.parseFuel(ByteBuffer.wrap(fuel.getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	/** Checks the fuel is rejected with a message containing each of the parts. */
+	static void rejected(String fuel, String... parts) {
+		try {
+			parse(fuel);
+		} catch (IOException e) {
+			for (String part : parts)
+				Tests.check(e.getMessage().contains(part), "message mentions " + part + ": " + e.getMessage());
+			return;
+		}
+		throw new Tests.Failure("accepted " + fuel.trim().replace('\n', ';'));
+	}
+}
@@ -0,0 +1,62 @@
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Checks that a Match with a fixed seed always plays out the same way, that
+ * replaying the fuel it placed gives the same match, and that a program which
+ * throws loses with its exception kept in the result.
+ */
+class MatchTests implements Tests.Suite {
+
+	static final long SEED = 42;
+
+	@Override
+	public Map<String, Tests.Test> tests() throws Exception {
+		Map<String, Tests.Test> tests = new LinkedHashMap<String, Tests.Test>();
+		final RobotProgramNode s1 = RegisterVM.compile(Parser.parse(new File("data/s1_full.prog")));
+		final RobotProgramNode s2 = RegisterVM.compile(Parser.parse(new File("data/s2_full.prog")));
+
+		tests.put("match.deterministic", new Tests.Test() {
+			public void run() throws Exception {
+				MatchResult first = new Match(s1, s2, SEED).play();
+				for (int i = 0; i < 3; i++) {
+					MatchResult again = new Match(s1, s2, SEED).play();
+					Tests.equal(first.toString(), again.toString(), "match " + (i + 2));
+					Tests.equal(placed(first.fuel), placed(again.fuel), "fuel placed in match " + (i + 2));
+				}
+			}
+		});
+		tests.put("match.replay", new Tests.Test() {
+			public void run() throws Exception {
+				MatchResult played = new Match(s1, s2, SEED).play();
+				MatchResult replayed = new Match(s1, s2, played.fuel).play();
+				Tests.equal(played.toString(), replayed.toString(), "replayed match");
+			}
+		});
+		tests.put("match.throwing.loses", new Tests.Test() {
+			public void run() throws Exception {
+				RobotProgramNode div = RegisterVM.compile(Parser.parse("loop { $z = 0; $x = div(1, $z); move; }"));
+				MatchResult asRed = new Match(div, s1, SEED).play();
+				Tests.equal(MatchResult.BLUE, asRed.winner, "winner against a throwing red: " + asRed);
+				Tests.check(asRed.redFailure != null, "red's failure is kept: " + asRed);
+				Tests.check(asRed.blueFailure == null, "blue did not fail: " + asRed);
+				MatchResult asBlue = new Match(s1, div, SEED).play();
+				Tests.equal(MatchResult.RED, asBlue.winner, "winner against a throwing blue: " + asBlue);
+				Tests.check(asBlue.failure(MatchResult.BLUE) != null, "blue's failure is kept: " + asBlue);
+			}
+		});
+		return tests;
+	}
+
+	/** The cells fuel was placed in, tick by tick. */
+	static String placed(FuelSchedule fuel) {
+		StringBuilder sb = new StringBuilder();
+		for (int t = 0; t < fuel.ticks(); t++) {
+			for (int i = 0; i < fuel.count(t); i++)
+				sb.append(fuel.cell(t, i)).append(' ');
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+}
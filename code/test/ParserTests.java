@@ -0,0 +1,76 @@
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that every program in data/ parses to the same tree as it did before
+ * the parser was rewritten, or is rejected if it was rejected then. The
+ * expected results are in parse-baseline.txt: for each program a line
+ * "== name" followed by the tree's toString, or by "rejected".
+ */
+class ParserTests implements Tests.Suite {
+
+	static final File BASELINE = new File("code/test/parse-baseline.txt");
+
+	@Override
+	public Map<String, Tests.Test> tests() throws Exception {
+		Map<String, Tests.Test> tests = new LinkedHashMap<String, Tests.Test>();
+		for (Map.Entry<String, String> e : baseline().entrySet()) {
+			final File file = new File("data", e.getKey());
+			final String expected = e.getValue();
+			final String name = e.getKey().replace(".prog", "");
+			tests.put("parse." + name, new Tests.Test() {
+				public void run() throws Exception {
+					Tests.equal(expected, parse(file), file.getName());
+				}
+			});
+			tests.put("parse.recovering." + name, new Tests.Test() {
+				public void run() throws Exception {
+					Parser.ParseResult result = Parser.parseRecovering(SourceReader.read(file));
+					Tests.equal(!expected.equals("rejected\n"), result.succeeded(), file.getName() + " succeeded");
+					if (result.succeeded())
+						Tests.equal(expected, result.program.toString(), file.getName());
+				}
+			});
+		}
+		return tests;
+	}
+
+	/** The program's toString, or "rejected" as in the baseline. */
+	static String parse(File file) throws Exception {
+		try {
+			return Parser.parse(file).toString();
+		} catch (ParserFailureException e) {
+			return "rejected\n";
+		}
+	}
+
+	/** The expected result for each program, by file name. */
+	static Map<String, String> baseline() throws Exception {
+		Map<String, String> expected = new LinkedHashMap<String, String>();
+		List<String> lines = Files.readAllLines(BASELINE.toPath(), StandardCharsets.UTF_8);
+		String name = null;
+		StringBuilder tree = new StringBuilder();
+		for (String line : lines) {
+			if (line.startsWith("== ")) {
+				if (name != null)
+					expected.put(name, tree.toString());
+				name = line.substring(3);
+				tree.setLength(0);
+			} else {
+				tree.append(line).append('\n');
+			}
+		}
+		if (name != null)
+			expected.put(name, tree.toString());
+		int programs = 0;
+		for (String f : new File("data").list())
+			if (f.endsWith(".prog"))
+				programs++;
+		Tests.equal(programs, expected.size(), "programs with a baseline");
+		return expected;
+	}
+}
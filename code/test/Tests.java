@@ -0,0 +1,87 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A small self-contained test runner, in the manner of the benchmark harness:
+ * each suite returns its tests by name, every test is run, and the failures
+ * are reported with their messages. A test fails by throwing, usually through
+ * check or equal.
+ *
+ * Run from the project directory (the tests read data/), e.g.
+ * <code>java -cp bin Tests</code>, or with arguments to run only the tests
+ * whose names contain one of them. Exits with status 1 if any test failed.
+ */
+class Tests {
+
+	/** One test. */
+	interface Test {
+		void run() throws Exception;
+	}
+
+	/** A group of tests sharing their setup. */
+	interface Suite {
+		/** Sets up the tests, returning them by name in running order. */
+		Map<String, Test> tests() throws Exception;
+	}
+
+	/** Thrown when a check fails. */
+	static class Failure extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		Failure(String message) {
+			super(message);
+		}
+	}
+
+	static void check(boolean condition, String message) {
+		if (!condition)
+			throw new Failure(message);
+	}
+
+	static void equal(Object expected, Object actual, String what) {
+		if (expected == null ? actual != null : !expected.equals(actual))
+			throw new Failure(what + ": expected " + expected + " but was " + actual);
+	}
+
+	public static void main(String[] args) throws Exception {
+		RoboGame.debugDisplay = false;
+		List<Suite> suites = new ArrayList<Suite>();
+		suites.add(new ParserTests());
+		suites.add(new CodecTests());
+		suites.add(new ExecutionTests());
+		suites.add(new MatchTests());
+		suites.add(new FuelTests());
+
+		int run = 0;
+		List<String> failed = new ArrayList<String>();
+		for (Suite suite : suites) {
+			for (Map.Entry<String, Test> t : suite.tests().entrySet()) {
+				if (!selected(t.getKey(), args))
+					continue;
+				run++;
+				try {
+					t.getValue().run();
+					System.out.println("ok   " + t.getKey());
+				} catch (Exception | Error e) {
+					System.out.println("FAIL " + t.getKey() + ": " + e);
+					if (!(e instanceof Failure))
+						e.printStackTrace(System.out);
+					failed.add(t.getKey());
+				}
+			}
+		}
+		System.out.println(run + " tests, " + failed.size() + " failed" + (failed.isEmpty() ? "" : ": " + failed));
+		if (!failed.isEmpty())
+			System.exit(1);
+	}
+
+	private static boolean selected(String name, String[] filters) {
+		if (filters.length == 0)
+			return true;
+		for (String f : filters)
+			if (name.contains(f))
+				return true;
+		return false;
+	}
+}